@@ -0,0 +1,88 @@
+package com.xxg.xtoolkit;
+
+/**
+ * 自适应并发限制（AIMD）：延迟保持在基准延迟的 tolerance 倍以内时，每完成一轮（limit 个请求）上限加 1；
+ * 延迟升高或请求失败时上限乘以 backoffRatio 收缩
+ *
+ * 基准延迟为成功请求延迟的长期指数移动平均，不使用最小延迟，避免个别特别快的请求把基准拉得过低
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double DEFAULT_TOLERANCE = 2.0;
+    private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+    private static final double BASELINE_SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private double baselineLatencyNanos = -1;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_TOLERANCE, DEFAULT_BACKOFF_RATIO);
+    }
+
+    /**
+     * @param tolerance 延迟超过基准延迟的多少倍视为升高
+     * @param backoffRatio 收缩时上限乘以的系数，取值 0 ~ 1
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoffRatio) {
+        if (minLimit <= 0 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("minLimit 必须大于 0，且不能大于 maxLimit");
+        }
+        if (tolerance < 1 || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("tolerance 不能小于 1，backoffRatio 必须在 0 ~ 1 之间");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * 尝试占用一个并发名额，成功后必须调用 {@link #release(long, boolean)} 或 {@link #cancel()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 请求完成，归还名额并根据延迟和结果调整上限
+     */
+    public synchronized void release(long latencyNanos, boolean success) {
+        inFlight--;
+        boolean latencyRising = baselineLatencyNanos > 0 && latencyNanos > baselineLatencyNanos * tolerance;
+        if (success) {
+            baselineLatencyNanos = baselineLatencyNanos < 0 ? latencyNanos
+                    : baselineLatencyNanos + (latencyNanos - baselineLatencyNanos) * BASELINE_SMOOTHING;
+        }
+        if (!success || latencyRising) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * 占用名额后没有发出请求，归还名额且不调整上限
+     */
+    public synchronized void cancel() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,171 @@
+package com.xxg.xtoolkit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 预生成 ID 的 Snowflake：后台线程提前把 ID 填充进一个有界无锁环形缓冲区，nextId() 只需一次出队
+ *
+ * 缓冲区中的 ID 是提前生成的，其中的时间戳可能早于取出的时间。缓冲区被取空时退化为直接调用 {@link Snowflake#nextId()}。
+ */
+public class BufferedSnowflake implements AutoCloseable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * 剩余 ID 低于缓冲区容量的百分之多少时触发填充
+     */
+    private static final int DEFAULT_PADDING_FACTOR = 50;
+
+    /**
+     * 填充失败（如时钟回拨）后的重试间隔，连续失败时翻倍，不超过最大值
+     */
+    private static final long MIN_FILL_BACKOFF_MILLIS = 1;
+    private static final long MAX_FILL_BACKOFF_MILLIS = 1000;
+
+    private final Snowflake snowflake;
+    private final AtomicLongArray slots;
+    private final long[] fillBuffer;
+    private final int mask;
+    private final int paddingThreshold;
+
+    /**
+     * 单生产者（填充线程）写 tail，多消费者 CAS 抢 head
+     */
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LongAdder fallbackCount = new LongAdder();
+    private final LongAdder fillFailureCount = new LongAdder();
+    private final Thread fillThread;
+    private volatile boolean running = true;
+
+    public BufferedSnowflake(Snowflake snowflake) {
+        this(snowflake, DEFAULT_BUFFER_SIZE, DEFAULT_PADDING_FACTOR);
+    }
+
+    /**
+     * @param bufferSize 缓冲区大小，向上取整为 2 的幂
+     * @param paddingFactor 剩余 ID 低于容量的百分之多少时填充，取值 1 ~ 100
+     */
+    public BufferedSnowflake(Snowflake snowflake, int bufferSize, int paddingFactor) {
+        if (bufferSize <= 0 || bufferSize > (1 << 30)) {
+            throw new IllegalArgumentException("bufferSize 必须在 1 ~ 2^30 之间");
+        }
+        if (paddingFactor <= 0 || paddingFactor > 100) {
+            throw new IllegalArgumentException("paddingFactor 必须在 1 ~ 100 之间");
+        }
+        int capacity = Integer.highestOneBit(bufferSize - 1) << 1;
+        if (bufferSize == 1) {
+            capacity = 1;
+        }
+        this.snowflake = snowflake;
+        this.slots = new AtomicLongArray(capacity);
+        this.fillBuffer = new long[capacity];
+        this.mask = capacity - 1;
+        this.paddingThreshold = Math.max(1, (int) ((long) capacity * paddingFactor / 100));
+
+        fill();
+        this.fillThread = new Thread(this::fillLoop, "BufferedSnowflake-filler");
+        this.fillThread.setDaemon(true);
+        this.fillThread.start();
+    }
+
+    public long nextId() {
+        while (true) {
+            long h = head.get();
+            long t = tail.get();
+            if (h >= t) {
+                // 缓冲区已取空，直接生成
+                fallbackCount.increment();
+                LockSupport.unpark(fillThread);
+                return snowflake.nextId();
+            }
+            long id = slots.get((int) (h & mask));
+            if (head.compareAndSet(h, h + 1)) {
+                if (t - h - 1 < paddingThreshold) {
+                    LockSupport.unpark(fillThread);
+                }
+                return id;
+            }
+        }
+    }
+
+    /**
+     * 缓冲区容量
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 当前缓冲区中可用的 ID 数量
+     */
+    public int getFillLevel() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * 缓冲区为空、退化为直接生成的次数
+     */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    /**
+     * 后台填充失败的次数，如时钟回拨超过 {@link Snowflake#setMaxClockBackwardMillis(long)} 时生成 ID 抛出异常，
+     * 填充线程会退避后继续填充，期间 nextId() 取空缓冲区后直接生成
+     */
+    public long getFillFailureCount() {
+        return fillFailureCount.sum();
+    }
+
+    /**
+     * 停止后台填充线程，之后 nextId() 取完缓冲区后直接生成
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(fillThread);
+    }
+
+    private void fillLoop() {
+        long backoffMillis = MIN_FILL_BACKOFF_MILLIS;
+        while (running) {
+            long parkMillis = MIN_FILL_BACKOFF_MILLIS;
+            if (getFillLevel() < paddingThreshold) {
+                try {
+                    fill();
+                    backoffMillis = MIN_FILL_BACKOFF_MILLIS;
+                } catch (RuntimeException e) {
+                    // 填充线程退出后缓冲区不会再被填充，失败时计数、退避后继续
+                    fillFailureCount.increment();
+                    parkMillis = backoffMillis;
+                    backoffMillis = Math.min(backoffMillis * 2, MAX_FILL_BACKOFF_MILLIS);
+                }
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(parkMillis));
+        }
+    }
+
+    /**
+     * 填满缓冲区，只有填充线程（以及构造方法）会调用
+     */
+    private void fill() {
+        long t = tail.get();
+        int free = (int) (getCapacity() - (t - head.get()));
+        if (free <= 0) {
+            return;
+        }
+        snowflake.nextIds(fillBuffer, 0, free);
+        for (int i = 0; i < free; i++) {
+            slots.set((int) (t & mask), fillBuffer[i]);
+            t++;
+        }
+        // 写完槽位后再发布 tail，消费者读到新的 tail 一定能看到对应的 ID
+        tail.set(t);
+    }
+}
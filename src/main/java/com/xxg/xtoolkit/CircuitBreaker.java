@@ -0,0 +1,113 @@
+package com.xxg.xtoolkit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 熔断器：连续失败达到阈值后打开，打开期间直接拒绝请求；经过 openMillis 后放行一次试探请求（半开），
+ * 试探成功则关闭，失败则重新打开；试探请求超过 halfOpenTimeoutMillis 仍没有结果时视为失败，重新打开。
+ * 状态和计数均为原子变量，无锁。
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long halfOpenTimeoutMillis;
+
+    /**
+     * 低 2 位为状态，其余位为打开或进入半开的时间（毫秒），两者一起 CAS 更新
+     */
+    private final AtomicLong state = new AtomicLong(State.CLOSED.ordinal());
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /**
+     * @param failureThreshold 连续失败多少次后打开
+     * @param openMillis 打开状态持续多久后放行试探请求，也是试探请求的超时时间
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, openMillis);
+    }
+
+    /**
+     * @param halfOpenTimeoutMillis 试探请求多久没有报告结果（如调用方漏掉了 onSuccess / onFailure）视为失败，重新打开
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, long halfOpenTimeoutMillis) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold 必须大于 0");
+        }
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("openMillis 不能小于 0");
+        }
+        if (halfOpenTimeoutMillis < 0) {
+            throw new IllegalArgumentException("halfOpenTimeoutMillis 不能小于 0");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.halfOpenTimeoutMillis = halfOpenTimeoutMillis;
+    }
+
+    /**
+     * 请求前调用，返回 false 表示熔断器打开，应快速失败
+     */
+    public boolean tryAcquire() {
+        long current = state.get();
+        State currentState = stateOf(current);
+        if (currentState == State.CLOSED) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (currentState == State.OPEN && now - (current >>> 2) >= openMillis) {
+            // 只有一个请求能抢到试探机会
+            return state.compareAndSet(current, now << 2 | State.HALF_OPEN.ordinal());
+        }
+        if (currentState == State.HALF_OPEN && now - (current >>> 2) >= halfOpenTimeoutMillis) {
+            // 试探请求丢失，重新打开，经过 openMillis 后再放行新的试探请求
+            open(current);
+        }
+        return false;
+    }
+
+    /**
+     * 只有半开状态下的试探请求成功才会关闭；打开期间返回的成功（打开前已经发出的请求）不改变状态
+     */
+    public void onSuccess() {
+        long current = state.get();
+        State currentState = stateOf(current);
+        if (currentState == State.CLOSED) {
+            consecutiveFailures.set(0);
+        } else if (currentState == State.HALF_OPEN && state.compareAndSet(current, State.CLOSED.ordinal())) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    public void onFailure() {
+        long current = state.get();
+        State currentState = stateOf(current);
+        if (currentState == State.HALF_OPEN) {
+            open(current);
+        } else if (currentState == State.CLOSED && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(current);
+        }
+    }
+
+    public State getState() {
+        return stateOf(state.get());
+    }
+
+    /**
+     * 只有状态确实从 from 变为打开时才记录打开时间，打开期间返回的失败不会延长打开时长
+     */
+    private void open(long from) {
+        if (state.compareAndSet(from, System.currentTimeMillis() << 2 | State.OPEN.ordinal())) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    private static State stateOf(long state) {
+        return State.values()[(int) (state & 3)];
+    }
+}
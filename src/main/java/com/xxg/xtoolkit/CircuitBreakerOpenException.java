@@ -0,0 +1,20 @@
+package com.xxg.xtoolkit;
+
+/**
+ * 熔断器打开时快速失败抛出的异常
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+
+    public CircuitBreakerOpenException(String name) {
+        super("熔断器已打开：" + name);
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
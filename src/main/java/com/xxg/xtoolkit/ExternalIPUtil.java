@@ -4,9 +4,12 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 public class ExternalIPUtil {
@@ -20,22 +23,100 @@ public class ExternalIPUtil {
             // and so on ...
     };
 
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 缓存剩余有效期低于 TTL 的 20% 时，在后台提前刷新
+     */
+    private static final double REFRESH_AHEAD_RATIO = 0.8;
+
+    /**
+     * 长期存在的 daemon 线程池，所有查询共用
+     */
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ExternalIPUtil-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static volatile CachedIP cachedIP;
+
+    /**
+     * 正在进行中的查询，并发调用者共用同一次查询
+     */
+    private static final AtomicReference<CompletableFuture<String>> IN_FLIGHT = new AtomicReference<>();
+
     public static String get() throws ExecutionException, InterruptedException {
         List<Callable<String>> callables = new ArrayList<>();
         for (String ipService : IPV4_SERVICES) {
             callables.add(() -> get(ipService));
         }
 
-        ExecutorService executorService = Executors.newCachedThreadPool();
+        // invokeAny 在第一个服务返回后会取消其余的查询
+        return EXECUTOR.invokeAny(callables);
+    }
+
+    /**
+     * 获取外网 IP，结果缓存 ttl 时长。缓存即将过期时在后台刷新并继续返回旧值，过期后同步查询，
+     * 并发调用者共用同一次查询。
+     */
+    public static String getCached(long ttl, TimeUnit unit) throws ExecutionException, InterruptedException {
+        long ttlNanos = unit.toNanos(ttl);
+        CachedIP cached = cachedIP;
+        if (cached != null) {
+            long age = System.nanoTime() - cached.fetchedAt;
+            if (age < ttlNanos) {
+                if (age >= ttlNanos * REFRESH_AHEAD_RATIO) {
+                    refresh();
+                }
+                return cached.ip;
+            }
+        }
+
         try {
-            return executorService.invokeAny(callables);
-        } finally {
-            executorService.shutdown();
+            return refresh().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ExecutionException) {
+                throw (ExecutionException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static CompletableFuture<String> refresh() {
+        while (true) {
+            CompletableFuture<String> inFlight = IN_FLIGHT.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            CompletableFuture<String> future = new CompletableFuture<>();
+            if (IN_FLIGHT.compareAndSet(null, future)) {
+                EXECUTOR.execute(() -> {
+                    try {
+                        String ip = get();
+                        cachedIP = new CachedIP(ip, System.nanoTime());
+                        future.complete(ip);
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        IN_FLIGHT.compareAndSet(future, null);
+                    }
+                });
+                return future;
+            }
         }
     }
 
     private static String get(String url) throws IOException {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(new URL(url).openStream()))) {
+        URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
             String ip = in.readLine();
             if (IPV4_PATTERN.matcher(ip).matches()) {
                 return ip;
@@ -44,6 +125,14 @@ public class ExternalIPUtil {
             }
         }
     }
-}
 
+    private static class CachedIP {
+        private final String ip;
+        private final long fetchedAt;
 
+        private CachedIP(String ip, long fetchedAt) {
+            this.ip = ip;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
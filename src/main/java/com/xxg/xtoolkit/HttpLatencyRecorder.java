@@ -0,0 +1,164 @@
+package com.xxg.xtoolkit;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内置的 {@link HttpMetrics.Reporter}：按 host 记录每个阶段的耗时直方图、连接复用率，以及 Dispatcher 排队深度
+ */
+public class HttpLatencyRecorder implements HttpMetrics.Reporter {
+
+    private final ConcurrentMap<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+    private final AtomicInteger maxQueuedCalls = new AtomicInteger();
+    private volatile int queuedCalls;
+    private volatile int runningCalls;
+
+    @Override
+    public void onPhase(String host, HttpMetrics.Phase phase, long nanos) {
+        host(host).histograms.get(phase).record(nanos);
+    }
+
+    @Override
+    public void onConnectionAcquired(String host, boolean reused) {
+        HostMetrics metrics = host(host);
+        metrics.connections.increment();
+        if (reused) {
+            metrics.reusedConnections.increment();
+        }
+    }
+
+    @Override
+    public void onDispatcher(int queuedCalls, int runningCalls) {
+        this.queuedCalls = queuedCalls;
+        this.runningCalls = runningCalls;
+        maxQueuedCalls.accumulateAndGet(queuedCalls, Math::max);
+    }
+
+    /**
+     * host 某个阶段的耗时直方图，没有记录时返回 null
+     */
+    public Histogram getHistogram(String host, HttpMetrics.Phase phase) {
+        HostMetrics metrics = hosts.get(host);
+        return metrics != null ? metrics.histograms.get(phase) : null;
+    }
+
+    /**
+     * host 的连接复用率（0 ~ 1），没有记录时返回 0
+     */
+    public double getConnectionReuseRate(String host) {
+        HostMetrics metrics = hosts.get(host);
+        if (metrics == null) {
+            return 0;
+        }
+        long connections = metrics.connections.sum();
+        return connections == 0 ? 0 : (double) metrics.reusedConnections.sum() / connections;
+    }
+
+    /**
+     * 最近一次请求开始时 Dispatcher 中排队的请求数
+     */
+    public int getQueuedCalls() {
+        return queuedCalls;
+    }
+
+    /**
+     * 最近一次请求开始时 Dispatcher 中正在执行的请求数
+     */
+    public int getRunningCalls() {
+        return runningCalls;
+    }
+
+    /**
+     * Dispatcher 排队请求数的最大值
+     */
+    public int getMaxQueuedCalls() {
+        return maxQueuedCalls.get();
+    }
+
+    public Iterable<String> getHosts() {
+        return hosts.keySet();
+    }
+
+    private HostMetrics host(String host) {
+        return hosts.computeIfAbsent(host, key -> new HostMetrics());
+    }
+
+    private static class HostMetrics {
+        private final Map<HttpMetrics.Phase, Histogram> histograms = new EnumMap<>(HttpMetrics.Phase.class);
+        private final LongAdder connections = new LongAdder();
+        private final LongAdder reusedConnections = new LongAdder();
+
+        private HostMetrics() {
+            for (HttpMetrics.Phase phase : HttpMetrics.Phase.values()) {
+                histograms.put(phase, new Histogram());
+            }
+        }
+    }
+
+    /**
+     * 以 2 的幂划分桶的耗时直方图（第 i 个桶为 [2^(i-1), 2^i) 微秒），分位数返回所在桶的上界，记录无锁
+     */
+    public static class Histogram {
+
+        private static final int BUCKETS = 40;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            buckets[bucket].increment();
+            count.increment();
+            totalNanos.add(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * 平均耗时（纳秒）
+         */
+        public long getMeanNanos() {
+            long count = getCount();
+            return count == 0 ? 0 : totalNanos.sum() / count;
+        }
+
+        /**
+         * 耗时分位数（纳秒），没有记录时返回 0
+         * @param percentile 取值 0 ~ 100，如 99 表示 p99
+         */
+        public long getPercentileNanos(double percentile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return (1L << i) * 1000;
+                }
+            }
+            return (1L << (BUCKETS - 1)) * 1000;
+        }
+    }
+}
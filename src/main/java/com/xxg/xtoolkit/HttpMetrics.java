@@ -0,0 +1,177 @@
+package com.xxg.xtoolkit;
+
+import okhttp3.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+/**
+ * 基于 OkHttp {@link EventListener} 的分阶段耗时统计，由 {@link OkHttpUtil#enableMetrics} 启用
+ *
+ * 统计结果通过 {@link Reporter} 回调输出，不依赖任何监控库，可以接入自己的监控系统，或使用内置的 {@link HttpLatencyRecorder}
+ */
+public class HttpMetrics {
+
+    public enum Phase {
+        /**
+         * DNS 解析
+         */
+        DNS,
+        /**
+         * TCP 连接（不含 TLS 握手）
+         */
+        CONNECT,
+        /**
+         * TLS 握手
+         */
+        TLS,
+        /**
+         * 从开始发送请求到收到响应头（time to first byte）
+         */
+        TTFB,
+        /**
+         * 读取响应体
+         */
+        BODY,
+        /**
+         * 整个请求，含排队、重定向和重试
+         */
+        TOTAL
+    }
+
+    /**
+     * 统计结果回调，回调在请求线程中同步执行，应尽量轻量
+     */
+    public interface Reporter {
+
+        /**
+         * 某个阶段的耗时
+         */
+        void onPhase(String host, Phase phase, long nanos);
+
+        /**
+         * 获取到连接，reused 表示复用了连接池中的连接
+         */
+        void onConnectionAcquired(String host, boolean reused);
+
+        /**
+         * 请求开始时 Dispatcher 中排队和正在执行的请求数
+         */
+        void onDispatcher(int queuedCalls, int runningCalls);
+    }
+
+    public static EventListener.Factory factory(Dispatcher dispatcher, Reporter reporter) {
+        return call -> new CallListener(dispatcher, reporter, call.request().url().host());
+    }
+
+    /**
+     * 每个请求一个实例，由 OkHttp 在同一时间只在一个线程中回调
+     */
+    private static class CallListener extends EventListener {
+
+        private final Dispatcher dispatcher;
+        private final Reporter reporter;
+        private final String host;
+
+        private long callStart;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+        private long requestStart;
+        private long responseBodyStart;
+        private boolean connected;
+
+        private CallListener(Dispatcher dispatcher, Reporter reporter, String host) {
+            this.dispatcher = dispatcher;
+            this.reporter = reporter;
+            this.host = host;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+            reporter.onDispatcher(dispatcher.queuedCallsCount(), dispatcher.runningCallsCount());
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            reporter.onPhase(host, Phase.DNS, System.nanoTime() - dnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connectStart = System.nanoTime();
+            secureConnectStart = 0;
+            connected = true;
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            secureConnectStart = System.nanoTime();
+            reporter.onPhase(host, Phase.CONNECT, secureConnectStart - connectStart);
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            reporter.onPhase(host, Phase.TLS, System.nanoTime() - secureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            if (secureConnectStart == 0) {
+                reporter.onPhase(host, Phase.CONNECT, System.nanoTime() - connectStart);
+            }
+        }
+
+        @Override
+        public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+            if (secureConnectStart == 0) {
+                reporter.onPhase(host, Phase.CONNECT, System.nanoTime() - connectStart);
+            }
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            reporter.onConnectionAcquired(host, !connected);
+            connected = false;
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            requestStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            reporter.onPhase(host, Phase.TTFB, System.nanoTime() - requestStart);
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            responseBodyStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            reporter.onPhase(host, Phase.BODY, System.nanoTime() - responseBodyStart);
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            reporter.onPhase(host, Phase.TOTAL, System.nanoTime() - callStart);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            reporter.onPhase(host, Phase.TOTAL, System.nanoTime() - callStart);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.xxg.xtoolkit;
+
+import okhttp3.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GET 请求的响应缓存，作为 OkHttp 应用拦截器使用，由 {@link OkHttpUtil#enableCache} 启用
+ *
+ * 内存层为有界 LRU，按 URL（含查询参数）缓存 200 响应：遵循响应的 Cache-Control（no-store 不缓存，max-age / Expires 决定有效期，
+ * no-cache 每次都重新验证），过期后携带 If-None-Match / If-Modified-Since 重新验证，服务端返回 304 时继续使用缓存内容。
+ * 可选的磁盘层为 OkHttp 自带的 {@link Cache}。
+ */
+public class HttpResponseCache implements Interceptor {
+
+    private final int maxEntries;
+    private final long maxEntryBytes;
+    private final Cache diskCache;
+
+    private final Map<String, Entry> entries;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder revalidationCount = new LongAdder();
+
+    /**
+     * @param maxEntries 内存中最多缓存的响应数
+     * @param maxEntryBytes 单个响应体超过该大小时不缓存
+     */
+    public HttpResponseCache(int maxEntries, long maxEntryBytes) {
+        this(maxEntries, maxEntryBytes, null, 0);
+    }
+
+    /**
+     * @param diskDirectory 磁盘缓存目录，为 null 时不启用磁盘层
+     * @param maxDiskBytes 磁盘缓存最大字节数
+     */
+    public HttpResponseCache(int maxEntries, long maxEntryBytes, File diskDirectory, long maxDiskBytes) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries 必须大于 0");
+        }
+        this.maxEntries = maxEntries;
+        this.maxEntryBytes = maxEntryBytes;
+        this.diskCache = diskDirectory != null ? new Cache(diskDirectory, maxDiskBytes) : null;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > HttpResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 磁盘层，未启用时为 null
+     */
+    public Cache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * 内存层命中且未过期，没有网络请求的次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 发出了网络请求并且使用了新响应的次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 内存层过期后重新验证，服务端返回 304 继续使用缓存的次数
+     */
+    public long getRevalidationCount() {
+        return revalidationCount.sum();
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method()) || request.cacheControl().noStore() || !isCacheable(request)) {
+            return chain.proceed(request);
+        }
+
+        String key = request.url().toString();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+
+        long now = System.currentTimeMillis();
+        if (entry != null && !request.cacheControl().noCache() && entry.isFresh(now)) {
+            hitCount.increment();
+            return entry.toResponse(request);
+        }
+
+        Request networkRequest = request;
+        if (entry != null && (entry.etag != null || entry.lastModified != null)) {
+            Request.Builder builder = request.newBuilder();
+            if (entry.etag != null) {
+                builder.header("If-None-Match", entry.etag);
+            }
+            if (entry.lastModified != null) {
+                builder.header("If-Modified-Since", entry.lastModified);
+            }
+            networkRequest = builder.build();
+        }
+
+        Response response = chain.proceed(networkRequest);
+        if (entry != null && response.code() == 304) {
+            Entry refreshed = entry.refresh(response.headers(), response.receivedResponseAtMillis());
+            response.close();
+            put(key, refreshed);
+            revalidationCount.increment();
+            return refreshed.toResponse(request);
+        }
+
+        missCount.increment();
+        return store(key, response);
+    }
+
+    private Response store(String key, Response response) throws IOException {
+        if (response.code() != 200 || !isCacheable(response.headers())) {
+            return response;
+        }
+        // peekBody 最多读取 maxEntryBytes + 1 字节，超出说明响应体过大，原响应不受影响
+        ResponseBody peeked = response.peekBody(maxEntryBytes + 1);
+        if (peeked.contentLength() > maxEntryBytes) {
+            return response;
+        }
+        byte[] body = peeked.bytes();
+        MediaType contentType = response.body().contentType();
+        response.close();
+
+        Entry entry = new Entry(response.protocol(), response.code(), response.message(), response.headers(),
+                contentType, body, response.receivedResponseAtMillis());
+        put(key, entry);
+        return entry.toResponse(response.request());
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * 分段请求、调用方自己的条件请求和带认证信息的请求不经过内存层，否则会拿到完整的缓存内容或者其他用户的内容
+     */
+    private static boolean isCacheable(Request request) {
+        return request.header("Range") == null
+                && request.header("If-None-Match") == null
+                && request.header("If-Modified-Since") == null
+                && request.header("If-Match") == null
+                && request.header("If-Unmodified-Since") == null
+                && request.header("If-Range") == null
+                && request.header("Authorization") == null;
+    }
+
+    private static boolean isCacheable(Headers headers) {
+        CacheControl cacheControl = CacheControl.parse(headers);
+        if (cacheControl.noStore()) {
+            return false;
+        }
+        // 响应随请求头变化时无法只按 URL 缓存，Accept-Encoding 除外：OkHttp 总是发送相同的 Accept-Encoding
+        for (String vary : headers.values("Vary")) {
+            for (String name : vary.split(",")) {
+                if (!"Accept-Encoding".equalsIgnoreCase(name.trim())) {
+                    return false;
+                }
+            }
+        }
+        return freshnessLifetime(headers, cacheControl) > 0 || headers.get("ETag") != null || headers.get("Last-Modified") != null;
+    }
+
+    /**
+     * 响应的有效期（毫秒）
+     */
+    private static long freshnessLifetime(Headers headers, CacheControl cacheControl) {
+        if (cacheControl.noCache()) {
+            return 0;
+        }
+        if (cacheControl.maxAgeSeconds() != -1) {
+            return TimeUnit.SECONDS.toMillis(cacheControl.maxAgeSeconds());
+        }
+        Date expires = headers.getDate("Expires");
+        if (expires != null) {
+            Date date = headers.getDate("Date");
+            long served = date != null ? date.getTime() : System.currentTimeMillis();
+            return Math.max(0, expires.getTime() - served);
+        }
+        return 0;
+    }
+
+    private static class Entry {
+        private final Protocol protocol;
+        private final int code;
+        private final String message;
+        private final Headers headers;
+        private final MediaType contentType;
+        private final byte[] body;
+        private final long storedAt;
+        private final long lifetime;
+        private final String etag;
+        private final String lastModified;
+
+        private Entry(Protocol protocol, int code, String message, Headers headers, MediaType contentType, byte[] body, long storedAt) {
+            this.protocol = protocol;
+            this.code = code;
+            this.message = message;
+            this.headers = headers;
+            this.contentType = contentType;
+            this.body = body;
+            this.storedAt = storedAt;
+            this.lifetime = freshnessLifetime(headers, CacheControl.parse(headers));
+            this.etag = headers.get("ETag");
+            this.lastModified = headers.get("Last-Modified");
+        }
+
+        private boolean isFresh(long now) {
+            return now - storedAt < lifetime;
+        }
+
+        /**
+         * 304 响应的头部覆盖缓存的头部，重新计算有效期
+         */
+        private Entry refresh(Headers notModifiedHeaders, long receivedAt) {
+            Headers.Builder merged = headers.newBuilder();
+            for (String name : notModifiedHeaders.names()) {
+                if (!"Content-Length".equalsIgnoreCase(name) && !"Content-Type".equalsIgnoreCase(name)
+                        && !"Content-Encoding".equalsIgnoreCase(name)) {
+                    merged.set(name, notModifiedHeaders.get(name));
+                }
+            }
+            return new Entry(protocol, code, message, merged.build(), contentType, body, receivedAt);
+        }
+
+        private Response toResponse(Request request) {
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(protocol)
+                    .code(code)
+                    .message(message)
+                    .headers(headers)
+                    .body(ResponseBody.create(body, contentType))
+                    .sentRequestAtMillis(storedAt)
+                    .receivedResponseAtMillis(storedAt)
+                    .build();
+        }
+    }
+}
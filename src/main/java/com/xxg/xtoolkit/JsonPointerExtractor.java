@@ -0,0 +1,210 @@
+package com.xxg.xtoolkit;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按 JSON Pointer（如 /header/type、/order/id）从 JSON 中提取部分字段，不需要绑定到完整的 POJO 或 Map
+ *
+ * 使用流式解析器扫描一遍，与指定字段无关的子树直接跳过、不会构建节点，所有字段都找到后立即停止解析。
+ * 同一组 JSON Pointer 预先编译为前缀树，实例线程安全，可以复用。
+ */
+public class JsonPointerExtractor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int size;
+    private final Node root = new Node();
+
+    public JsonPointerExtractor(String... pointers) {
+        if (pointers == null || pointers.length == 0) {
+            throw new IllegalArgumentException("至少需要一个 JSON Pointer");
+        }
+        this.size = pointers.length;
+        for (int i = 0; i < pointers.length; i++) {
+            JsonPointer pointer;
+            try {
+                pointer = JsonPointer.compile(pointers[i]);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("JSON Pointer 格式错误：" + pointers[i], e);
+            }
+            add(pointer, i);
+        }
+    }
+
+    /**
+     * 提取结果与构造方法中的 JSON Pointer 顺序一一对应，不存在的字段为 null
+     */
+    public JsonNode[] extract(String json) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            return extract(parser);
+        }
+    }
+
+    public JsonNode[] extract(byte[] json) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            return extract(parser);
+        }
+    }
+
+    /**
+     * 找到所有字段后不再继续读取输入流，不会关闭输入流
+     */
+    public JsonNode[] extract(InputStream inputStream) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(inputStream)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return extract(parser);
+        }
+    }
+
+    private JsonNode[] extract(JsonParser parser) throws IOException {
+        JsonNode[] result = new JsonNode[size];
+        if (parser.nextToken() != null) {
+            walk(parser, root, result, size);
+        }
+        return result;
+    }
+
+    /**
+     * 解析器位于 node 对应的值的第一个 token，返回还未找到的字段数，返回 0 时解析器可能停在值的中间
+     */
+    private static int walk(JsonParser parser, Node node, JsonNode[] result, int remaining) throws IOException {
+        int before = remaining;
+        if (node.targets != null) {
+            // 该节点本身需要提取，构建子树后从子树中取出更深层的字段
+            JsonNode value = MAPPER.readTree(parser);
+            for (Target target : node.targets) {
+                JsonNode found = target.relative.matches() ? value : value.at(target.relative);
+                if (!found.isMissingNode()) {
+                    result[target.index] = found;
+                }
+                remaining--;
+            }
+            return remaining;
+        }
+
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT && node.fields != null) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.fields.get(parser.getCurrentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else if ((remaining = walk(parser, child, result, remaining)) == 0) {
+                    return 0;
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY && node.elements != null) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Node child = node.elements.get(index++);
+                if (child == null) {
+                    parser.skipChildren();
+                } else if ((remaining = walk(parser, child, result, remaining)) == 0) {
+                    return 0;
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+        // 该值已经扫描完，其中没有找到的字段之后也不会再出现
+        return before - node.total;
+    }
+
+    private void add(JsonPointer pointer, int index) {
+        Node node = root;
+        JsonPointer current = pointer;
+        while (!current.matches()) {
+            if (node.targets != null) {
+                // 祖先节点已经需要整体提取，从其子树中取值
+                break;
+            }
+            String name = current.getMatchingProperty();
+            if (node.fields == null) {
+                node.fields = new HashMap<>();
+            }
+            Node child = node.fields.computeIfAbsent(name, key -> new Node());
+            int elementIndex = current.getMatchingIndex();
+            if (elementIndex >= 0) {
+                if (node.elements == null) {
+                    node.elements = new HashMap<>();
+                }
+                node.elements.putIfAbsent(elementIndex, child);
+            }
+            node = child;
+            current = current.tail();
+        }
+
+        if (node.targets == null) {
+            node.targets = new ArrayList<>();
+            // 该节点之下原有的字段改为从该节点的子树中取值
+            moveTargets(node, node, JsonPointer.empty());
+            node.fields = null;
+            node.elements = null;
+        }
+        node.targets.add(new Target(index, current));
+        count(root);
+    }
+
+    private static void moveTargets(Node owner, Node node, JsonPointer relative) {
+        if (node != owner && node.targets != null) {
+            for (Target target : node.targets) {
+                owner.targets.add(new Target(target.index, relative.append(target.relative)));
+            }
+        }
+        if (node.fields != null) {
+            for (Map.Entry<String, Node> entry : node.fields.entrySet()) {
+                moveTargets(owner, entry.getValue(), relative.append(JsonPointer.compile("/" + escape(entry.getKey()))));
+            }
+        }
+    }
+
+    private static String escape(String name) {
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+
+    /**
+     * 统计每个节点之下需要提取的字段数
+     */
+    private static int count(Node node) {
+        if (node.targets != null) {
+            node.total = node.targets.size();
+            return node.total;
+        }
+        int total = 0;
+        if (node.fields != null) {
+            for (Node child : node.fields.values()) {
+                total += count(child);
+            }
+        }
+        node.total = total;
+        return total;
+    }
+
+    private static class Node {
+        private Map<String, Node> fields;
+        private Map<Integer, Node> elements;
+        private List<Target> targets;
+        private int total;
+    }
+
+    private static class Target {
+        private final int index;
+        private final JsonPointer relative;
+
+        private Target(int index, JsonPointer relative) {
+            this.index = index;
+            this.relative = relative;
+        }
+    }
+}
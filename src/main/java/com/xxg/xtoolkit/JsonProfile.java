@@ -0,0 +1,201 @@
+package com.xxg.xtoolkit;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个 ObjectMapper 及按类型缓存的 ObjectReader / ObjectWriter，省去每次调用时按类型查找序列化器的开销
+ *
+ * 通过 {@link JsonUtil#register(String, ObjectMapper, boolean)} 注册，{@link JsonUtil#profile(String)} 获取，
+ * 注册后不要再修改 ObjectMapper 的配置
+ */
+public class JsonProfile {
+
+    private final String name;
+    private final ObjectMapper mapper;
+    private final ObjectWriter defaultWriter;
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    /**
+     * 未开启统计时为 null，默认的 JsonUtil 方法不承担计数的开销
+     */
+    private final LongAdder writeCount;
+    private final LongAdder readCount;
+
+    JsonProfile(String name, ObjectMapper mapper, boolean countOperations) {
+        this.name = name;
+        this.mapper = mapper;
+        this.defaultWriter = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.writeCount = countOperations ? new LongAdder() : null;
+        this.readCount = countOperations ? new LongAdder() : null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * 序列化次数，可以按时间间隔采样计算吞吐量，注册时没有开启统计则返回 -1
+     */
+    public long getWriteCount() {
+        return writeCount != null ? writeCount.sum() : -1;
+    }
+
+    /**
+     * 解析次数，流式解析时每个 MappingIterator 计一次，注册时没有开启统计则返回 -1
+     */
+    public long getReadCount() {
+        return readCount != null ? readCount.sum() : -1;
+    }
+
+    public String toJSONString(Object obj) throws JsonProcessingException {
+        countWrite();
+        return writer(obj).writeValueAsString(obj);
+    }
+
+    public byte[] toJSONBytes(Object obj) throws JsonProcessingException {
+        countWrite();
+        return writer(obj).writeValueAsBytes(obj);
+    }
+
+    /**
+     * 序列化后直接写入输出流，不经过中间的 String，不会关闭输出流
+     */
+    public void writeJSON(OutputStream outputStream, Object obj) throws IOException {
+        countWrite();
+        writer(obj).writeValue(outputStream, obj);
+    }
+
+    public <T> T parseJSON(String json, Class<T> clazz) throws IOException {
+        countRead();
+        return reader(clazz).readValue(json);
+    }
+
+    public <T> T parseJSON(byte[] json, Class<T> clazz) throws IOException {
+        countRead();
+        return reader(clazz).readValue(json);
+    }
+
+    /**
+     * 直接从输入流解析，不经过中间的 String
+     */
+    public <T> T parseJSON(InputStream inputStream, Class<T> clazz) throws IOException {
+        countRead();
+        return reader(clazz).readValue(inputStream);
+    }
+
+    /**
+     * 从 ByteBuffer 的 position 到 limit 之间解析，不改变 ByteBuffer 的 position
+     */
+    public <T> T parseJSON(ByteBuffer json, Class<T> clazz) throws IOException {
+        countRead();
+        return readValue(reader(clazz), json);
+    }
+
+    /**
+     * 解析为泛型类型，如 new TypeReference&lt;List&lt;User&gt;&gt;() {}
+     */
+    public <T> T parseJSON(String json, TypeReference<T> typeReference) throws IOException {
+        countRead();
+        return reader(typeReference.getType()).readValue(json);
+    }
+
+    public <T> T parseJSON(byte[] json, TypeReference<T> typeReference) throws IOException {
+        countRead();
+        return reader(typeReference.getType()).readValue(json);
+    }
+
+    public <T> T parseJSON(InputStream inputStream, TypeReference<T> typeReference) throws IOException {
+        countRead();
+        return reader(typeReference.getType()).readValue(inputStream);
+    }
+
+    public <T> T parseJSON(ByteBuffer json, TypeReference<T> typeReference) throws IOException {
+        countRead();
+        return readValue(reader(typeReference.getType()), json);
+    }
+
+    /**
+     * 逐个解析 JSON 数组的元素，或者逐个解析 NDJSON（每行一个 JSON）中的值，按需从输入流读取，内存占用与数据总量无关
+     *
+     * 使用完后需要关闭返回的 MappingIterator，关闭时会关闭输入流
+     */
+    public <T> MappingIterator<T> parseJSONValues(InputStream inputStream, Class<T> clazz) throws IOException {
+        countRead();
+        return reader(clazz).readValues(inputStream);
+    }
+
+    /**
+     * 逐个写入 JSON 数组的元素，关闭返回的 SequenceWriter 时写入数组结尾，不会关闭输出流
+     */
+    public SequenceWriter writeJSONArray(OutputStream outputStream) throws IOException {
+        countWrite();
+        return defaultWriter.writeValuesAsArray(outputStream);
+    }
+
+    /**
+     * 以 NDJSON 格式（每行一个 JSON）逐个写入，不会关闭输出流
+     */
+    public SequenceWriter writeJSONLines(OutputStream outputStream) throws IOException {
+        countWrite();
+        return defaultWriter.withRootValueSeparator("\n").writeValues(outputStream);
+    }
+
+    private void countWrite() {
+        if (writeCount != null) {
+            writeCount.increment();
+        }
+    }
+
+    private void countRead() {
+        if (readCount != null) {
+            readCount.increment();
+        }
+    }
+
+    private ObjectReader reader(Type type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = readers.computeIfAbsent(type, key -> mapper.readerFor(mapper.constructType(key)));
+        }
+        return reader;
+    }
+
+    /**
+     * 按对象的实际类型获取 ObjectWriter，写入输出流时不会关闭输出流
+     */
+    private ObjectWriter writer(Object obj) {
+        if (obj == null) {
+            return defaultWriter;
+        }
+        ObjectWriter writer = writers.get(obj.getClass());
+        if (writer == null) {
+            writer = writers.computeIfAbsent(obj.getClass(), key -> defaultWriter.forType(key));
+        }
+        return writer;
+    }
+
+    private static <T> T readValue(ObjectReader reader, ByteBuffer json) throws IOException {
+        if (json.hasArray()) {
+            return reader.readValue(json.array(), json.arrayOffset() + json.position(), json.remaining());
+        }
+        return reader.readValue(new ByteBufferBackedInputStream(json.duplicate()));
+    }
+}
@@ -1,15 +1,41 @@
 package com.xxg.xtoolkit;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class JsonUtil {
 
     private final static ObjectMapper COMMON_MAPPER;
     private final static ObjectMapper SNAKE_CASE_MAPPER;
 
+    /**
+     * 默认的两个 profile 的名称，{@link #toJSONString} 等方法使用 COMMON，{@link #toSnakeCaseJSONString} 等方法使用 SNAKE_CASE
+     */
+    public final static String COMMON_PROFILE = "common";
+    public final static String SNAKE_CASE_PROFILE = "snakeCase";
+
+    private final static ConcurrentMap<String, JsonProfile> PROFILES = new ConcurrentHashMap<>();
+
+    private final static JsonProfile COMMON;
+    private final static JsonProfile SNAKE_CASE;
+
     static {
         COMMON_MAPPER = new ObjectMapper();
         COMMON_MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -17,21 +43,239 @@ public class JsonUtil {
         SNAKE_CASE_MAPPER = new ObjectMapper();
         SNAKE_CASE_MAPPER.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         SNAKE_CASE_MAPPER.setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+
+        COMMON = register(COMMON_PROFILE, COMMON_MAPPER);
+        SNAKE_CASE = register(SNAKE_CASE_PROFILE, SNAKE_CASE_MAPPER);
+    }
+
+    /**
+     * 注册一个命名的 ObjectMapper，应在启动时完成，同一个名称只能注册一次
+     */
+    public static JsonProfile register(String name, ObjectMapper mapper) {
+        return register(name, mapper, false);
+    }
+
+    /**
+     * 注册一个命名的 ObjectMapper
+     * @param countOperations 是否统计解析和序列化次数（{@link JsonProfile#getReadCount()} / {@link JsonProfile#getWriteCount()}），
+     *                        用于计算各 profile 的吞吐量，每次调用多一次计数器累加
+     */
+    public static JsonProfile register(String name, ObjectMapper mapper, boolean countOperations) {
+        if (name == null || mapper == null) {
+            throw new IllegalArgumentException("name 和 mapper 不能为 null");
+        }
+        JsonProfile profile = new JsonProfile(name, mapper, countOperations);
+        if (PROFILES.putIfAbsent(name, profile) != null) {
+            throw new IllegalArgumentException("JsonProfile 已存在：" + name);
+        }
+        return profile;
+    }
+
+    public static JsonProfile profile(String name) {
+        JsonProfile profile = PROFILES.get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("JsonProfile 不存在：" + name);
+        }
+        return profile;
+    }
+
+    /**
+     * 高吞吐配置的 ObjectMapper，属性名种类有限（如 POJO 的属性）时使用，同 newHighThroughputMapper(true)
+     */
+    public static ObjectMapper newHighThroughputMapper() {
+        return newHighThroughputMapper(true);
+    }
+
+    /**
+     * 高吞吐配置的 ObjectMapper，配置项与默认的 ObjectMapper 相同，可以继续设置命名策略等，然后通过 {@link #register} 注册
+     *
+     * 与默认配置的区别：
+     * 1. classpath 中有 jackson-module-afterburner 时，使用字节码生成的访问器代替反射读写属性
+     * 2. 关闭属性名的 String.intern()，规范化后的属性名已经按符号表复用，intern 只会多一次全局字符串表查找
+     * 3. 属性名种类不受限时（如以 ID 为 key 的 Map）关闭规范化，避免符号表不断增长、超过上限后被清空重建
+     *
+     * @param boundedFieldNames 属性名是否种类有限，true 时保留规范化，false 时关闭
+     */
+    public static ObjectMapper newHighThroughputMapper(boolean boundedFieldNames) {
+        JsonFactory factory = JsonFactory.builder()
+                .configure(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES, boundedFieldNames)
+                .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+                .build();
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        if (isAfterburnerAvailable()) {
+            mapper.registerModule(Afterburner.module());
+        }
+        return mapper;
     }
 
     public static String toJSONString(Object obj) throws JsonProcessingException {
-        return COMMON_MAPPER.writeValueAsString(obj);
+        return COMMON.toJSONString(obj);
+    }
+
+    public static byte[] toJSONBytes(Object obj) throws JsonProcessingException {
+        return COMMON.toJSONBytes(obj);
+    }
+
+    /**
+     * 序列化后直接写入输出流，不经过中间的 String，不会关闭输出流
+     */
+    public static void writeJSON(OutputStream outputStream, Object obj) throws IOException {
+        COMMON.writeJSON(outputStream, obj);
     }
 
     public static <T> T parseJSON(String json, Class<T> clazz) throws IOException {
-        return COMMON_MAPPER.readValue(json, clazz);
+        return COMMON.parseJSON(json, clazz);
+    }
+
+    public static <T> T parseJSON(byte[] json, Class<T> clazz) throws IOException {
+        return COMMON.parseJSON(json, clazz);
+    }
+
+    /**
+     * 直接从输入流解析，不经过中间的 String
+     */
+    public static <T> T parseJSON(InputStream inputStream, Class<T> clazz) throws IOException {
+        return COMMON.parseJSON(inputStream, clazz);
+    }
+
+    /**
+     * 从 ByteBuffer 的 position 到 limit 之间解析，不改变 ByteBuffer 的 position
+     */
+    public static <T> T parseJSON(ByteBuffer json, Class<T> clazz) throws IOException {
+        return COMMON.parseJSON(json, clazz);
+    }
+
+    /**
+     * 解析为泛型类型，如 new TypeReference&lt;List&lt;User&gt;&gt;() {}
+     */
+    public static <T> T parseJSON(String json, TypeReference<T> typeReference) throws IOException {
+        return COMMON.parseJSON(json, typeReference);
+    }
+
+    public static <T> T parseJSON(byte[] json, TypeReference<T> typeReference) throws IOException {
+        return COMMON.parseJSON(json, typeReference);
+    }
+
+    public static <T> T parseJSON(InputStream inputStream, TypeReference<T> typeReference) throws IOException {
+        return COMMON.parseJSON(inputStream, typeReference);
+    }
+
+    public static <T> T parseJSON(ByteBuffer json, TypeReference<T> typeReference) throws IOException {
+        return COMMON.parseJSON(json, typeReference);
+    }
+
+    /**
+     * 逐个解析 JSON 数组的元素，或者逐个解析 NDJSON（每行一个 JSON）中的值，按需从输入流读取，内存占用与数据总量无关
+     *
+     * 使用完后需要关闭返回的 MappingIterator，关闭时会关闭输入流
+     */
+    public static <T> MappingIterator<T> parseJSONValues(InputStream inputStream, Class<T> clazz) throws IOException {
+        return COMMON.parseJSONValues(inputStream, clazz);
+    }
+
+    /**
+     * 同 {@link #parseJSONValues(InputStream, Class)}，以 Stream 的形式返回，JSON 中的 null 对应 Stream 中的 null 元素，使用完后需要关闭 Stream
+     */
+    public static <T> Stream<T> streamJSONValues(InputStream inputStream, Class<T> clazz) throws IOException {
+        MappingIterator<T> iterator = parseJSONValues(inputStream, clazz);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        iterator.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * 逐个读取文件中 JSON 数组的元素或 NDJSON 中的值，使用完后需要关闭 Stream
+     */
+    public static <T> Stream<T> streamJSONValues(Path path, Class<T> clazz) throws IOException {
+        InputStream inputStream = Files.newInputStream(path);
+        try {
+            return streamJSONValues(inputStream, clazz);
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 逐个写入 JSON 数组的元素，关闭返回的 SequenceWriter 时写入数组结尾，不会关闭输出流
+     */
+    public static SequenceWriter writeJSONArray(OutputStream outputStream) throws IOException {
+        return COMMON.writeJSONArray(outputStream);
+    }
+
+    /**
+     * 以 NDJSON 格式（每行一个 JSON）逐个写入，不会关闭输出流
+     */
+    public static SequenceWriter writeJSONLines(OutputStream outputStream) throws IOException {
+        return COMMON.writeJSONLines(outputStream);
     }
 
     public static String toSnakeCaseJSONString(Object obj) throws JsonProcessingException {
-        return SNAKE_CASE_MAPPER.writeValueAsString(obj);
+        return SNAKE_CASE.toJSONString(obj);
+    }
+
+    public static byte[] toSnakeCaseJSONBytes(Object obj) throws JsonProcessingException {
+        return SNAKE_CASE.toJSONBytes(obj);
+    }
+
+    public static void writeSnakeCaseJSON(OutputStream outputStream, Object obj) throws IOException {
+        SNAKE_CASE.writeJSON(outputStream, obj);
     }
 
     public static <T> T parseSnakeCaseJSON(String json, Class<T> clazz) throws IOException {
-        return SNAKE_CASE_MAPPER.readValue(json, clazz);
+        return SNAKE_CASE.parseJSON(json, clazz);
+    }
+
+    public static <T> T parseSnakeCaseJSON(byte[] json, Class<T> clazz) throws IOException {
+        return SNAKE_CASE.parseJSON(json, clazz);
+    }
+
+    public static <T> T parseSnakeCaseJSON(InputStream inputStream, Class<T> clazz) throws IOException {
+        return SNAKE_CASE.parseJSON(inputStream, clazz);
+    }
+
+    public static <T> T parseSnakeCaseJSON(ByteBuffer json, Class<T> clazz) throws IOException {
+        return SNAKE_CASE.parseJSON(json, clazz);
+    }
+
+    public static <T> T parseSnakeCaseJSON(String json, TypeReference<T> typeReference) throws IOException {
+        return SNAKE_CASE.parseJSON(json, typeReference);
+    }
+
+    public static <T> T parseSnakeCaseJSON(byte[] json, TypeReference<T> typeReference) throws IOException {
+        return SNAKE_CASE.parseJSON(json, typeReference);
+    }
+
+    public static <T> T parseSnakeCaseJSON(InputStream inputStream, TypeReference<T> typeReference) throws IOException {
+        return SNAKE_CASE.parseJSON(inputStream, typeReference);
+    }
+
+    public static <T> T parseSnakeCaseJSON(ByteBuffer json, TypeReference<T> typeReference) throws IOException {
+        return SNAKE_CASE.parseJSON(json, typeReference);
+    }
+
+    private static boolean isAfterburnerAvailable() {
+        try {
+            Class.forName("com.fasterxml.jackson.module.afterburner.AfterburnerModule", false, JsonUtil.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * jackson-module-afterburner 是可选依赖，只有在 classpath 中存在时才会加载该类
+     */
+    private static class Afterburner {
+
+        private static com.fasterxml.jackson.databind.Module module() {
+            return new AfterburnerModule();
+        }
     }
 }
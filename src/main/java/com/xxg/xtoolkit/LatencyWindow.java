@@ -0,0 +1,57 @@
+package com.xxg.xtoolkit;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 记录最近 N 次耗时的滑动窗口，用于计算耗时分位数。记录无锁，计算分位数时复制一份窗口并排序。
+ */
+public class LatencyWindow {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * @param size 窗口大小，保留最近 size 次耗时
+     */
+    public LatencyWindow(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size 必须大于 0");
+        }
+        this.samples = new AtomicLongArray(size);
+    }
+
+    public void record(long latencyNanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), latencyNanos);
+    }
+
+    /**
+     * 窗口中的样本数
+     */
+    public int size() {
+        return (int) Math.min(count.get(), samples.length());
+    }
+
+    /**
+     * 耗时分位数（纳秒），窗口为空时返回 -1
+     * @param percentile 分位数，取值 0 ~ 100，如 95 表示 p95
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile 必须在 0 ~ 100 之间");
+        }
+        int size = size();
+        if (size == 0) {
+            return -1;
+        }
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+}
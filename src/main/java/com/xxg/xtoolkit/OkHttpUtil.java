@@ -1,27 +1,123 @@
 package com.xxg.xtoolkit;
 
+import com.xxg.xtoolkit.function.CheckedConsumer;
+import com.xxg.xtoolkit.function.CheckedFunction;
+import com.xxg.xtoolkit.function.CheckedSupplier;
+import com.xxg.xtoolkit.function.ProgressListener;
 import okhttp3.*;
 import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.GzipSink;
 import okio.Okio;
+import okio.Source;
 
 import javax.net.ssl.*;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.*;
 import java.security.cert.CertificateException;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 public class OkHttpUtil {
 
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
+    private static final MediaType OCTET_STREAM_MEDIA_TYPE = MediaType.parse("application/octet-stream");
+
+    /**
+     * 分段下载时每个分段失败后续传的最大次数
+     */
+    private static final int SEGMENT_RETRIES = 3;
+    private static final int SEGMENT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 批量请求时每个 host 的默认并发上限
+     */
+    private static final int DEFAULT_BULK_MAX_CONCURRENCY_PER_HOST = 64;
+
+    /**
+     * TLS 双向认证客户端共用的基础客户端，派生出的客户端共用连接池和 Dispatcher 线程池
+     */
+    private static final OkHttpClient SHARED_CLIENT = new OkHttpClient();
+
+    /**
+     * 按名称缓存的 TLS 双向认证客户端，每个证书只解析一次，SSLContext 复用后 TLS 会话也可以复用
+     */
+    private static final ConcurrentMap<String, OkHttpClient> MUTUAL_TLS_CLIENTS = new ConcurrentHashMap<>();
+
     private OkHttpClient okHttpClient = new OkHttpClient();
 
+    private volatile boolean coalescing = false;
+
+    /**
+     * 进行中的 GET 请求，key 为 "GET " + 完整 URL（含查询参数）
+     */
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlightRequests = new ConcurrentHashMap<>();
+
+    private volatile int bulkMaxConcurrencyPerHost = DEFAULT_BULK_MAX_CONCURRENCY_PER_HOST;
+
+    /**
+     * 批量请求按 host 共享的并发限制和等待队列，同一 host 的多次 getAll 并发执行时共用一个并发上限
+     */
+    private final ConcurrentMap<String, BulkHost> bulkHosts = new ConcurrentHashMap<>();
+
+    /**
+     * 批量请求使用的客户端，由 okHttpClient 派生，Dispatcher 的 maxRequestsPerHost 放宽到 bulkMaxConcurrencyPerHost，
+     * 共用连接池和线程池
+     */
+    private OkHttpClient bulkClient;
+    private OkHttpClient bulkClientBase;
+
     public void setOkHttpClient(OkHttpClient okHttpClient) {
         this.okHttpClient = okHttpClient;
     }
 
+    /**
+     * 启用分阶段耗时统计（DNS、TCP 连接、TLS 握手、首字节、响应体），以及连接复用和 Dispatcher 排队情况，
+     * 结果回调给 reporter，可以使用内置的 {@link HttpLatencyRecorder}
+     */
+    public void enableMetrics(HttpMetrics.Reporter reporter) {
+        okHttpClient = okHttpClient.newBuilder()
+                .eventListenerFactory(HttpMetrics.factory(okHttpClient.dispatcher(), reporter))
+                .build();
+    }
+
+    /**
+     * 开启后，并发的相同 GET 请求（方法、URL、查询参数都相同）合并为一次请求，共享同一个结果或异常，默认关闭
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * 启用 GET 响应缓存（仅内存层），返回的 {@link HttpResponseCache} 可用于查看命中、未命中、重新验证次数
+     */
+    public HttpResponseCache enableCache(int maxEntries, long maxEntryBytes) {
+        return enableCache(new HttpResponseCache(maxEntries, maxEntryBytes));
+    }
+
+    /**
+     * 启用 GET 响应缓存（内存层 + 磁盘层）
+     */
+    public HttpResponseCache enableCache(int maxEntries, long maxEntryBytes, File diskDirectory, long maxDiskBytes) {
+        return enableCache(new HttpResponseCache(maxEntries, maxEntryBytes, diskDirectory, maxDiskBytes));
+    }
+
+    private HttpResponseCache enableCache(HttpResponseCache responseCache) {
+        OkHttpClient.Builder builder = okHttpClient.newBuilder().addInterceptor(responseCache);
+        if (responseCache.getDiskCache() != null) {
+            builder.cache(responseCache.getDiskCache());
+        }
+        okHttpClient = builder.build();
+        return responseCache;
+    }
+
     /**
      * GET 请求
      */
@@ -33,41 +129,62 @@ public class OkHttpUtil {
      * GET 请求（带参数）
      */
     public String get(String url, Map<String, String> queryParameters) throws IOException {
-        HttpUrl.Builder urlBuilder = HttpUrl.parse(url).newBuilder();
-        if (queryParameters != null) {
-            for (Map.Entry<String, String> queryParameter : queryParameters.entrySet()) {
-                urlBuilder.addQueryParameter(queryParameter.getKey(), queryParameter.getValue());
-            }
+        Request request = buildGetRequest(url, queryParameters);
+        if (!coalescing) {
+            return execute(request);
         }
-        HttpUrl httpUrl = urlBuilder.build();
-        Request request = new Request.Builder()
-                .url(httpUrl)
-                .build();
+
+        String key = request.method() + " " + request.url();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightRequests.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            String body = execute(request);
+            future.complete(body);
+            return body;
+        } catch (Throwable e) {
+            // 任何异常（包括 Error）都要通知等待中的线程，否则它们会一直阻塞
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(key, future);
+        }
+    }
+
+    private String execute(Request request) throws IOException {
         try (Response response = okHttpClient.newCall(request).execute()) {
             checkSuccessful(response);
             return response.body().string();
         } catch (Exception e) {
-            throw new IOException("请求异常，URL：" + httpUrl, e);
+            throw new IOException("请求异常，URL：" + request.url(), e);
         }
     }
 
     /**
-     * POST 请求（请求 BODY 为 form 表单）
+     * 等待其他线程发起的相同请求
      */
-    public String postForm(String url, Map<String, String> formData) throws IOException {
-
-        FormBody.Builder requestBodyBuilder = new FormBody.Builder();
-        if (formData != null) {
-            for (Map.Entry<String, String> entry : formData.entrySet()) {
-                requestBodyBuilder.add(entry.getKey(), entry.getValue());
+    private static String await(CompletableFuture<String> inFlight) throws IOException {
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待相同请求的结果时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
             }
+            throw new IOException(cause);
         }
-        RequestBody body = requestBodyBuilder.build();
+    }
 
-        Request.Builder builder = new Request.Builder()
-                .url(url)
-                .post(body);
-        Request request = builder.build();
+    /**
+     * POST 请求（请求 BODY 为 form 表单）
+     */
+    public String postForm(String url, Map<String, String> formData) throws IOException {
+        Request request = buildPostFormRequest(url, formData);
         try (Response response = okHttpClient.newCall(request).execute()) {
             checkSuccessful(response);
             return response.body().string();
@@ -80,16 +197,7 @@ public class OkHttpUtil {
      * POST 请求（请求 BODY 为 json，带 header）
      */
     public String postJson(String url, String requestBody, Map<String, String> requestHeaders) throws IOException {
-        RequestBody body = RequestBody.create(requestBody, MediaType.parse("application/json; charset=utf-8"));
-        Request.Builder builder = new Request.Builder()
-                .url(url)
-                .post(body);
-        if (requestHeaders != null) {
-            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
-                builder.header(header.getKey(), header.getValue());
-            }
-        }
-        Request request = builder.build();
+        Request request = buildPostJsonRequest(url, requestBody, requestHeaders);
         try (Response response = okHttpClient.newCall(request).execute()) {
             checkSuccessful(response);
             return response.body().string();
@@ -105,6 +213,50 @@ public class OkHttpUtil {
         return postJson(url, requestBody, null);
     }
 
+    /**
+     * GET 请求，响应 json 直接从响应流解析为 responseType，不经过中间的 String
+     */
+    public <T> T getJson(String url, Class<T> responseType) throws IOException {
+        return getJson(url, null, responseType);
+    }
+
+    /**
+     * GET 请求（带参数），响应 json 直接从响应流解析为 responseType
+     */
+    public <T> T getJson(String url, Map<String, String> queryParameters, Class<T> responseType) throws IOException {
+        Request request = buildGetRequest(url, queryParameters);
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            checkSuccessful(response);
+            return JsonUtil.parseJSON(response.body().byteStream(), responseType);
+        } catch (Exception e) {
+            throw new IOException("请求异常，URL：" + request.url(), e);
+        }
+    }
+
+    /**
+     * POST 请求，requestObject 直接序列化为 json 写入请求流，响应 json 直接从响应流解析为 responseType
+     */
+    public <T> T postJsonObject(String url, Object requestObject, Class<T> responseType) throws IOException {
+        return postJsonObject(url, requestObject, null, responseType);
+    }
+
+    /**
+     * POST 请求（带 header），requestObject 直接序列化为 json 写入请求流，响应 json 直接从响应流解析为 responseType
+     */
+    public <T> T postJsonObject(String url, Object requestObject, Map<String, String> requestHeaders, Class<T> responseType) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .post(jsonRequestBody(requestObject));
+        addHeaders(builder, requestHeaders);
+        Request request = builder.build();
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            checkSuccessful(response);
+            return JsonUtil.parseJSON(response.body().byteStream(), responseType);
+        } catch (Exception e) {
+            throw new IOException("请求异常，URL：" + url, e);
+        }
+    }
+
     /**
      * GET 请求下载文件
      */
@@ -114,12 +266,230 @@ public class OkHttpUtil {
                 .build();
         try (Response response = okHttpClient.newCall(request).execute()) {
             checkSuccessful(response);
-            try (BufferedSink sink = Okio.buffer(Okio.sink(localFile))) {
-                sink.writeAll(response.body().source());
+            writeToFile(response, localFile);
+        } catch (Exception e) {
+            throw new IOException("下载文件异常，URL：" + url, e);
+        }
+    }
+
+    /**
+     * 分段并行下载文件
+     *
+     * 服务端支持 Range（Accept-Ranges: bytes 且有 Content-Length）时，把文件分为 segments 段，用 Range 请求并行下载，
+     * 写入预先分配好大小的文件；某一段失败时从已下载的位置续传，最多续传 3 次。服务端不支持 Range 时退化为单连接下载。
+     *
+     * @param progressListener 下载进度回调，可以为 null，在 Dispatcher 线程中执行
+     */
+    public void downloadFile(String url, File localFile, int segments, ProgressListener progressListener) throws IOException {
+        HttpUrl httpUrl = HttpUrl.get(url);
+        long contentLength = -1;
+        boolean acceptRanges = false;
+        Request headRequest = new Request.Builder()
+                .url(httpUrl)
+                .head()
+                .header("Accept-Encoding", "identity")
+                .build();
+        try (Response response = okHttpClient.newCall(headRequest).execute()) {
+            if (response.isSuccessful()) {
+                acceptRanges = "bytes".equalsIgnoreCase(response.header("Accept-Ranges"));
+                String length = response.header("Content-Length");
+                contentLength = length != null ? Long.parseLong(length) : -1;
             }
         } catch (Exception e) {
             throw new IOException("下载文件异常，URL：" + url, e);
         }
+
+        if (!acceptRanges || contentLength <= 0 || segments <= 1) {
+            downloadFile(url, localFile);
+            if (progressListener != null) {
+                progressListener.onProgress(localFile.length(), localFile.length());
+            }
+            return;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(localFile, "rw")) {
+            file.setLength(contentLength);
+            SegmentedDownload download = new SegmentedDownload(httpUrl, file.getChannel(), contentLength, progressListener);
+            try {
+                long segmentSize = (contentLength + segments - 1) / segments;
+                for (long start = 0; start < contentLength; start += segmentSize) {
+                    long end = Math.min(start + segmentSize, contentLength) - 1;
+                    download.start(start, end);
+                }
+                download.await();
+            } finally {
+                // 失败或被中断时取消其余分段，等所有回调结束后才关闭文件，避免回调写入已关闭的文件后继续续传
+                download.cancel();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("下载文件被中断，URL：" + url);
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw new IOException("下载文件异常，URL：" + url, cause);
+        }
+    }
+
+    /**
+     * 一次分段下载的共享状态：所有分段的 Call（用于统一取消）和每个分段的结果
+     */
+    private class SegmentedDownload {
+
+        private final HttpUrl url;
+        private final FileChannel channel;
+        private final long contentLength;
+        private final ProgressListener progressListener;
+
+        private final AtomicLong downloaded = new AtomicLong();
+        private final Queue<Call> calls = new ConcurrentLinkedQueue<>();
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        /**
+         * 所有分段成功时完成，以第一个失败分段的异常完成
+         */
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        /**
+         * 整体下载已经失败或被取消，不再续传
+         */
+        private volatile boolean cancelled;
+
+        private SegmentedDownload(HttpUrl url, FileChannel channel, long contentLength, ProgressListener progressListener) {
+            this.url = url;
+            this.channel = channel;
+            this.contentLength = contentLength;
+            this.progressListener = progressListener;
+        }
+
+        private void start(long start, long end) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            // 任一分段失败时整体失败，立即取消其余分段
+            future.whenComplete((value, throwable) -> {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                    cancelCalls();
+                }
+            });
+            futures.add(future);
+            downloadSegment(start, end, start, SEGMENT_RETRIES, future);
+        }
+
+        private void await() throws InterruptedException, ExecutionException {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenRun(() -> result.complete(null));
+            result.get();
+        }
+
+        private void cancelCalls() {
+            cancelled = true;
+            for (Call call : calls) {
+                call.cancel();
+            }
+        }
+
+        /**
+         * 取消所有分段，并等待所有分段的回调结束
+         */
+        private void cancel() {
+            cancelCalls();
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException | CancellationException ignored) {
+                    // 只需要等待回调结束，异常已由 await 处理
+                }
+            }
+        }
+
+        /**
+         * 用 Range 请求下载 [position, end] 的内容写入文件对应位置，失败后从已写入的位置续传
+         */
+        private void downloadSegment(long start, long end, long position, int retries, CompletableFuture<Void> future) {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .header("Range", "bytes=" + position + "-" + end)
+                    .header("Accept-Encoding", "identity")
+                    .build();
+            Call segmentCall = okHttpClient.newCall(request);
+            calls.add(segmentCall);
+            if (cancelled) {
+                // 加入 calls 之前整体已经取消，cancel() 没有取消到这个 Call
+                future.completeExceptionally(new IOException("下载已取消"));
+                return;
+            }
+            segmentCall.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    retry(position, e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    long current = position;
+                    try (Response r = response) {
+                        checkSuccessful(r);
+                        if (r.code() != 206) {
+                            throw new IOException("服务端没有返回分段内容：" + r);
+                        }
+                        checkContentRange(r.header("Content-Range"), position, end);
+                        BufferedSource source = r.body().source();
+                        ByteBuffer buffer = ByteBuffer.allocate(SEGMENT_BUFFER_SIZE);
+                        while (current <= end) {
+                            buffer.clear();
+                            buffer.limit((int) Math.min(buffer.capacity(), end - current + 1));
+                            int read = source.read(buffer);
+                            if (read == -1) {
+                                break;
+                            }
+                            buffer.flip();
+                            while (buffer.hasRemaining()) {
+                                current += channel.write(buffer, current);
+                            }
+                            long completed = downloaded.addAndGet(read);
+                            if (progressListener != null) {
+                                progressListener.onProgress(completed, contentLength);
+                            }
+                        }
+                        if (current <= end) {
+                            throw new EOFException("分段内容不完整，bytes=" + start + "-" + end + "，已下载到 " + current);
+                        }
+                        future.complete(null);
+                    } catch (Exception e) {
+                        retry(current, e);
+                    }
+                }
+
+                private void retry(long current, Exception e) {
+                    calls.remove(segmentCall);
+                    if (retries > 0 && !cancelled) {
+                        downloadSegment(start, end, current, retries - 1, future);
+                    } else {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        }
+
+        /**
+         * 检查 Content-Range（bytes first-last/total）与请求的范围一致，服务端返回较短的范围时由续传补齐剩余部分
+         */
+        private void checkContentRange(String contentRange, long position, long end) throws IOException {
+            if (contentRange == null || !contentRange.startsWith("bytes ")) {
+                throw new IOException("分段响应缺少 Content-Range，请求范围：bytes=" + position + "-" + end);
+            }
+            try {
+                int dash = contentRange.indexOf('-');
+                int slash = contentRange.indexOf('/');
+                long first = Long.parseLong(contentRange.substring(6, dash).trim());
+                long last = Long.parseLong(contentRange.substring(dash + 1, slash).trim());
+                String total = contentRange.substring(slash + 1).trim();
+                if (first != position || last < first || last > end
+                        || (!"*".equals(total) && Long.parseLong(total) != contentLength)) {
+                    throw new IOException("Content-Range 与请求范围不一致：" + contentRange + "，请求范围：bytes=" + position + "-" + end);
+                }
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                throw new IOException("Content-Range 格式错误：" + contentRange, e);
+            }
+        }
     }
 
     /**
@@ -133,7 +503,468 @@ public class OkHttpUtil {
      * POST multipart/form-data 上传文件
      */
     public String uploadFile(String url, Map<String, String> bodyParameters, Map<String, File> files, Map<String, String> requestHeaders) throws IOException {
+        Request request = buildUploadFileRequest(url, bodyParameters, files, requestHeaders);
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            checkSuccessful(response);
+            return response.body().string();
+        } catch (Exception e) {
+            throw new IOException("请求异常，URL：" + url, e);
+        }
+    }
+
+    /**
+     * POST multipart/form-data 上传单个文件，文件内容从输入流读取，边读边发送，不会整体读入内存
+     */
+    public String uploadFile(String url, String fileParameterName, String fileName, InputStream inputStream) throws IOException {
+        MultipartBody body = new MultipartBody.Builder().setType(MultipartBody.FORM)
+                .addFormDataPart(fileParameterName, fileName, createRequestBody(inputStream, OCTET_STREAM_MEDIA_TYPE))
+                .build();
+        // MultipartBody 不会继承分段的 isOneShot()，需要标记为只能发送一次，避免重试或重定向时再次读取已经读完的输入流
+        return post(url, oneShot(body), null, false);
+    }
+
+    /**
+     * POST 请求（请求 BODY 可以由 createRequestBody 创建，从流、文件或回调中边生成边发送）
+     *
+     * @param gzip 是否用 gzip 压缩请求 BODY（同时设置 Content-Encoding: gzip，需要服务端支持）
+     */
+    public String post(String url, RequestBody requestBody, Map<String, String> requestHeaders, boolean gzip) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .post(gzip ? gzip(requestBody) : requestBody);
+        addHeaders(builder, requestHeaders);
+        if (gzip) {
+            builder.header("Content-Encoding", "gzip");
+        }
+        Request request = builder.build();
+        try (Response response = okHttpClient.newCall(request).execute()) {
+            checkSuccessful(response);
+            return response.body().string();
+        } catch (Exception e) {
+            throw new IOException("请求异常，URL：" + url, e);
+        }
+    }
+
+    /**
+     * 从输入流读取的请求 BODY，只能发送一次，发送后关闭输入流
+     */
+    public static RequestBody createRequestBody(InputStream inputStream, MediaType contentType) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return true;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (Source source = Okio.source(inputStream)) {
+                    sink.writeAll(source);
+                }
+            }
+        };
+    }
 
+    /**
+     * 从文件读取的请求 BODY，发送时才打开文件
+     */
+    public static RequestBody createRequestBody(Path path, MediaType contentType) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return Files.size(path);
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (Source source = Okio.source(path)) {
+                    sink.writeAll(source);
+                }
+            }
+        };
+    }
+
+    /**
+     * 由回调写入的请求 BODY，回调直接写入连接的输出流（不要关闭该输出流），适合边生成边发送的大数据
+     */
+    public static RequestBody createRequestBody(CheckedConsumer<OutputStream> writer, MediaType contentType) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try {
+                    writer.accept(sink.outputStream());
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 发送时用 gzip 压缩的请求 BODY，压缩后长度未知，以 chunked 方式发送
+     */
+    private static RequestBody gzip(RequestBody body) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return body.isOneShot();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (BufferedSink gzipSink = Okio.buffer(new GzipSink(sink))) {
+                    body.writeTo(gzipSink);
+                }
+            }
+        };
+    }
+
+    /**
+     * 只能发送一次的请求 BODY，OkHttp 不会在重试或重定向时再次调用 writeTo
+     */
+    private static RequestBody oneShot(RequestBody body) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return body.contentLength();
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return true;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                body.writeTo(sink);
+            }
+        };
+    }
+
+    /**
+     * 异步 GET 请求
+     *
+     * 异步方法基于 OkHttp 的 {@link Dispatcher}，不会阻塞调用线程，并发数受 Dispatcher 的 maxRequests / maxRequestsPerHost 限制。
+     * 返回的 CompletableFuture 在请求失败或状态码异常时以 IOException 完成，异常信息与同步方法一致；取消 future 会取消请求。
+     */
+    public CompletableFuture<String> getAsync(String url) {
+        return getAsync(url, null);
+    }
+
+    /**
+     * 异步 GET 请求（带参数）
+     */
+    public CompletableFuture<String> getAsync(String url, Map<String, String> queryParameters) {
+        Request request = buildGetRequest(url, queryParameters);
+        return enqueue(request, "请求异常，URL：" + request.url(), response -> response.body().string());
+    }
+
+    /**
+     * 异步 POST 请求（请求 BODY 为 form 表单）
+     */
+    public CompletableFuture<String> postFormAsync(String url, Map<String, String> formData) {
+        Request request = buildPostFormRequest(url, formData);
+        return enqueue(request, "请求异常，URL：" + url + "，RequestBody：" + formData, response -> response.body().string());
+    }
+
+    /**
+     * 异步 POST 请求（请求 BODY 为 json，带 header）
+     */
+    public CompletableFuture<String> postJsonAsync(String url, String requestBody, Map<String, String> requestHeaders) {
+        Request request = buildPostJsonRequest(url, requestBody, requestHeaders);
+        return enqueue(request, "请求异常，URL：" + url + "，RequestBody：" + requestBody, response -> response.body().string());
+    }
+
+    /**
+     * 异步 POST 请求（请求 BODY 为 json）
+     */
+    public CompletableFuture<String> postJsonAsync(String url, String requestBody) {
+        return postJsonAsync(url, requestBody, null);
+    }
+
+    /**
+     * 异步 GET 请求下载文件
+     */
+    public CompletableFuture<Void> downloadFileAsync(String url, File localFile) {
+        Request request = new Request.Builder()
+                .url(url)
+                .build();
+        return enqueue(request, "下载文件异常，URL：" + url, response -> {
+            writeToFile(response, localFile);
+            return null;
+        });
+    }
+
+    /**
+     * 异步 POST multipart/form-data 上传文件
+     */
+    public CompletableFuture<String> uploadFileAsync(String url, Map<String, String> bodyParameters, Map<String, File> files, Map<String, String> requestHeaders) {
+        Request request = buildUploadFileRequest(url, bodyParameters, files, requestHeaders);
+        return enqueue(request, "请求异常，URL：" + url, response -> response.body().string());
+    }
+
+    /**
+     * 设置批量请求时每个 host 的并发上限，默认 64，应在发起批量请求之前设置
+     */
+    public synchronized void setBulkMaxConcurrencyPerHost(int maxConcurrencyPerHost) {
+        if (maxConcurrencyPerHost <= 0) {
+            throw new IllegalArgumentException("maxConcurrencyPerHost 必须大于 0");
+        }
+        this.bulkMaxConcurrencyPerHost = maxConcurrencyPerHost;
+        bulkHosts.clear();
+        bulkClient = null;
+    }
+
+    /**
+     * 批量 GET 请求，结果在完成时逐个回调，回调在 Dispatcher 线程中执行
+     *
+     * 每个 host 的并发数自适应调整（{@link AdaptiveConcurrencyLimiter}）：延迟稳定时逐步增加，延迟升高、连接出错、超时或返回
+     * 5xx / 429 时收缩，404 等其他失败的状态码不会收缩，
+     * 上限由 {@link #setBulkMaxConcurrencyPerHost} 设置。同一 host 的并发限制在多次 getAll 之间共享。
+     *
+     * @param onResponse 请求成功的回调，参数为 URL 和响应内容
+     * @param onFailure 请求失败的回调，参数为 URL 和异常
+     * @return 全部请求完成（成功或失败）后完成
+     * @throws IllegalArgumentException urls 中有格式错误的 URL 时抛出，此时不会发出任何请求
+     */
+    public CompletableFuture<Void> getAll(Collection<String> urls, BiConsumer<String, String> onResponse, BiConsumer<String, IOException> onFailure) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (urls.isEmpty()) {
+            done.complete(null);
+            return done;
+        }
+
+        // 先解析全部 URL，有格式错误时直接抛出，不会有部分请求留在共享的队列中
+        List<HttpUrl> httpUrls = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            httpUrls.add(HttpUrl.get(url));
+        }
+
+        OkHttpClient client = bulkClient();
+        BulkBatch batch = new BulkBatch(urls.size(), done, onResponse, onFailure);
+        Set<BulkHost> hosts = new HashSet<>();
+        Iterator<HttpUrl> httpUrlIterator = httpUrls.iterator();
+        for (String url : urls) {
+            HttpUrl httpUrl = httpUrlIterator.next();
+            BulkHost host = bulkHosts.computeIfAbsent(httpUrl.host(), key -> new BulkHost(bulkMaxConcurrencyPerHost));
+            host.queue.add(new BulkRequest(url, httpUrl, batch));
+            hosts.add(host);
+        }
+        for (BulkHost host : hosts) {
+            pump(client, host);
+        }
+        return done;
+    }
+
+    /**
+     * okHttpClient 被替换（setOkHttpClient、enableCache 等）后重新派生
+     */
+    private synchronized OkHttpClient bulkClient() {
+        OkHttpClient base = okHttpClient;
+        if (bulkClient == null || bulkClientBase != base) {
+            Dispatcher dispatcher = new Dispatcher(base.dispatcher().executorService());
+            dispatcher.setMaxRequests(Math.max(base.dispatcher().getMaxRequests(), bulkMaxConcurrencyPerHost));
+            dispatcher.setMaxRequestsPerHost(bulkMaxConcurrencyPerHost);
+            bulkClient = base.newBuilder().dispatcher(dispatcher).build();
+            bulkClientBase = base;
+        }
+        return bulkClient;
+    }
+
+    /**
+     * 在并发名额允许的范围内发出该 host 队列中的请求（可能来自多次 getAll），每个请求完成后继续发出下一个
+     */
+    private void pump(OkHttpClient client, BulkHost host) {
+        while (host.limiter.tryAcquire()) {
+            BulkRequest bulkRequest = host.queue.poll();
+            if (bulkRequest == null) {
+                host.limiter.cancel();
+                // 归还名额前其他线程可能刚加入请求，并因为名额已满而没有发出
+                if (host.queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            Request request = new Request.Builder().url(bulkRequest.httpUrl).build();
+            enqueue(client, request, "请求异常，URL：" + request.url(), response -> response.body().string()).whenComplete((body, throwable) -> {
+                host.limiter.release(System.nanoTime() - start, !isOverload(throwable));
+                try {
+                    bulkRequest.batch.complete(bulkRequest.url, body, throwable);
+                } finally {
+                    pump(client, host);
+                }
+            });
+        }
+    }
+
+    /**
+     * 连接失败、超时以及 5xx、429 视为服务端过载，需要收缩并发数；404 等其他状态码是正常的响应，不影响并发数
+     */
+    private static boolean isOverload(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnexpectedCodeException) {
+                int code = ((UnexpectedCodeException) cause).code;
+                return code >= 500 || code == 429;
+            }
+        }
+        return throwable != null;
+    }
+
+    /**
+     * 一个 host 上所有批量请求共用的并发限制和等待队列
+     */
+    private static class BulkHost {
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final Queue<BulkRequest> queue = new ConcurrentLinkedQueue<>();
+
+        private BulkHost(int maxConcurrency) {
+            this.limiter = new AdaptiveConcurrencyLimiter(1, 1, maxConcurrency);
+        }
+    }
+
+    private static class BulkRequest {
+        private final String url;
+        private final HttpUrl httpUrl;
+        private final BulkBatch batch;
+
+        private BulkRequest(String url, HttpUrl httpUrl, BulkBatch batch) {
+            this.url = url;
+            this.httpUrl = httpUrl;
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * 一次 getAll 调用的回调和剩余请求数
+     */
+    private static class BulkBatch {
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> done;
+        private final BiConsumer<String, String> onResponse;
+        private final BiConsumer<String, IOException> onFailure;
+
+        private BulkBatch(int count, CompletableFuture<Void> done, BiConsumer<String, String> onResponse, BiConsumer<String, IOException> onFailure) {
+            this.remaining = new AtomicInteger(count);
+            this.done = done;
+            this.onResponse = onResponse;
+            this.onFailure = onFailure;
+        }
+
+        private void complete(String url, String body, Throwable throwable) {
+            try {
+                if (throwable == null) {
+                    onResponse.accept(url, body);
+                } else {
+                    Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                    onFailure.accept(url, cause instanceof IOException ? (IOException) cause : new IOException(cause));
+                }
+            } finally {
+                if (remaining.decrementAndGet() == 0) {
+                    done.complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * 异步执行请求，在 Dispatcher 线程中检查状态码并处理响应
+     */
+    private <T> CompletableFuture<T> enqueue(Request request, String errorMessage, CheckedFunction<Response, T> responseHandler) {
+        return enqueue(okHttpClient, request, errorMessage, responseHandler);
+    }
+
+    private <T> CompletableFuture<T> enqueue(OkHttpClient client, Request request, String errorMessage, CheckedFunction<Response, T> responseHandler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(new IOException(errorMessage, e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    checkSuccessful(r);
+                    future.complete(responseHandler.apply(r));
+                } catch (Exception e) {
+                    future.completeExceptionally(new IOException(errorMessage, e));
+                }
+            }
+        });
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private Request buildGetRequest(String url, Map<String, String> queryParameters) {
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(url).newBuilder();
+        if (queryParameters != null) {
+            for (Map.Entry<String, String> queryParameter : queryParameters.entrySet()) {
+                urlBuilder.addQueryParameter(queryParameter.getKey(), queryParameter.getValue());
+            }
+        }
+        HttpUrl httpUrl = urlBuilder.build();
+        return new Request.Builder()
+                .url(httpUrl)
+                .build();
+    }
+
+    private Request buildPostFormRequest(String url, Map<String, String> formData) {
+        FormBody.Builder requestBodyBuilder = new FormBody.Builder();
+        if (formData != null) {
+            for (Map.Entry<String, String> entry : formData.entrySet()) {
+                requestBodyBuilder.add(entry.getKey(), entry.getValue());
+            }
+        }
+        RequestBody body = requestBodyBuilder.build();
+
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .post(body);
+        return builder.build();
+    }
+
+    private Request buildPostJsonRequest(String url, String requestBody, Map<String, String> requestHeaders) {
+        RequestBody body = RequestBody.create(requestBody, JSON_MEDIA_TYPE);
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .post(body);
+        addHeaders(builder, requestHeaders);
+        return builder.build();
+    }
+
+    private Request buildUploadFileRequest(String url, Map<String, String> bodyParameters, Map<String, File> files, Map<String, String> requestHeaders) {
         MultipartBody.Builder bodyBuilder = new MultipartBody.Builder().setType(MultipartBody.FORM);
         if (bodyParameters != null) {
             for (Map.Entry<String, String> bodyParameter : bodyParameters.entrySet()) {
@@ -143,24 +974,45 @@ public class OkHttpUtil {
         if (files != null) {
             for (Map.Entry<String, File> fileItem : files.entrySet()) {
                 bodyBuilder.addFormDataPart(fileItem.getKey(), fileItem.getValue().getName(),
-                        RequestBody.create(fileItem.getValue(), MediaType.parse("application/octet-stream")));
+                        RequestBody.create(fileItem.getValue(), OCTET_STREAM_MEDIA_TYPE));
             }
         }
         RequestBody body = bodyBuilder.build();
         Request.Builder builder = new Request.Builder()
                 .url(url)
                 .post(body);
+        addHeaders(builder, requestHeaders);
+        return builder.build();
+    }
+
+    /**
+     * 发送时才把对象序列化写入 sink 的 json 请求体
+     */
+    private RequestBody jsonRequestBody(Object requestObject) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON_MEDIA_TYPE;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                JsonUtil.writeJSON(sink.outputStream(), requestObject);
+            }
+        };
+    }
+
+    private void addHeaders(Request.Builder builder, Map<String, String> requestHeaders) {
         if (requestHeaders != null) {
             for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
                 builder.header(header.getKey(), header.getValue());
             }
         }
-        Request request = builder.build();
-        try (Response response = okHttpClient.newCall(request).execute()) {
-            checkSuccessful(response);
-            return response.body().string();
-        } catch (Exception e) {
-            throw new IOException("请求异常，URL：" + url, e);
+    }
+
+    private void writeToFile(Response response, File localFile) throws IOException {
+        try (BufferedSink sink = Okio.buffer(Okio.sink(localFile))) {
+            sink.writeAll(response.body().source());
         }
     }
 
@@ -177,15 +1029,60 @@ public class OkHttpUtil {
             }
 
             if (body != null) {
-                throw new IOException("Unexpected code: " + response + ", Response body: " + body);
+                throw new UnexpectedCodeException(response.code(), "Unexpected code: " + response + ", Response body: " + body);
             } else {
-                throw new IOException("Unexpected code: " + response);
+                throw new UnexpectedCodeException(response.code(), "Unexpected code: " + response);
             }
         }
     }
 
+    /**
+     * 状态码不是 2xx，保留状态码以便区分服务端过载（5xx、429）和业务上的失败（如 404）
+     */
+    private static class UnexpectedCodeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int code;
+
+        private UnexpectedCodeException(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
 
 
+    /**
+     * 获取按名称缓存的 TLS 双向认证 OkHttpClient，第一次获取时加载证书并创建，之后直接返回缓存的客户端
+     *
+     * @param name 客户端名称，如商户号
+     * @param pkcs12Certificate 提供证书文件输入流，只在第一次获取时调用，输入流由本方法关闭
+     * @param keyStorePassword 证书对应的密码
+     */
+    public static OkHttpClient getMutualTLSClient(String name, CheckedSupplier<InputStream> pkcs12Certificate, char[] keyStorePassword) throws Exception {
+        OkHttpClient client = MUTUAL_TLS_CLIENTS.get(name);
+        if (client != null) {
+            return client;
+        }
+        synchronized (MUTUAL_TLS_CLIENTS) {
+            client = MUTUAL_TLS_CLIENTS.get(name);
+            if (client == null) {
+                try (InputStream certificate = pkcs12Certificate.get()) {
+                    client = createMutualTLSClient(certificate, keyStorePassword);
+                }
+                MUTUAL_TLS_CLIENTS.put(name, client);
+            }
+            return client;
+        }
+    }
+
+    /**
+     * 移除缓存的 TLS 双向认证客户端，用于证书更换，下次获取时重新加载证书
+     */
+    public static void removeMutualTLSClient(String name) {
+        MUTUAL_TLS_CLIENTS.remove(name);
+    }
+
     /**
      * 创建 TLS 双向认证（ mutual TLS authentication ）的 OkHttpClient
      *
@@ -218,8 +1115,8 @@ public class OkHttpUtil {
                     + Arrays.toString(trustManagers));
         }
 
-        // 创建 OkHttpClient 客户端
-        OkHttpClient client = new OkHttpClient.Builder()
+        // 从共用的基础客户端派生 OkHttpClient 客户端，共用连接池和线程池（连接按 SSLSocketFactory 区分，不会混用证书）
+        OkHttpClient client = SHARED_CLIENT.newBuilder()
                 .sslSocketFactory(sslContext.getSocketFactory(), (X509TrustManager) trustManagers[0])
                 .build();
 
@@ -0,0 +1,70 @@
+package com.xxg.xtoolkit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重试预算：重试次数不超过首次请求次数的一定百分比，避免下游故障时重试把流量放大数倍
+ *
+ * 实现为令牌桶，每次首次请求存入 retryPercent / 100 个令牌，每次重试取出 1 个令牌，令牌数上限为 maxRetries，
+ * 令牌以千分之一为单位保存在一个 AtomicLong 中，无锁。
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    /**
+     * @param retryPercent 重试次数占首次请求次数的百分比，如 10 表示每 10 次请求允许 1 次重试
+     * @param maxRetries 令牌上限，即预算积攒满时允许连续重试的次数，初始时预算是满的
+     */
+    public RetryBudget(int retryPercent, int maxRetries) {
+        if (retryPercent < 0) {
+            throw new IllegalArgumentException("retryPercent 不能小于 0");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries 不能小于 0");
+        }
+        this.deposit = retryPercent * SCALE / 100;
+        this.capacity = maxRetries * SCALE;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * 记录一次首次请求
+     */
+    public void onRequest() {
+        while (true) {
+            long current = balance.get();
+            long next = Math.min(capacity, current + deposit);
+            if (next == current || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 尝试为一次重试扣除预算
+     * @return 预算不足时返回 false，不应重试
+     */
+    public boolean tryRetry() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前剩余可重试次数
+     */
+    public int getAvailableRetries() {
+        return (int) (balance.get() / SCALE);
+    }
+}
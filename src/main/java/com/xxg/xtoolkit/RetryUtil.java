@@ -3,8 +3,54 @@ package com.xxg.xtoolkit;
 import com.xxg.xtoolkit.function.CheckedRunnable;
 import com.xxg.xtoolkit.function.CheckedSupplier;
 
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
 public class RetryUtil {
 
+    /**
+     * 异步重试和对冲请求共用的调度线程池，只负责定时，不执行任务，重试间隔期间不占用任何线程
+     */
+    private static final ScheduledExecutorService SCHEDULER;
+
+    static {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "RetryUtil-scheduler-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        SCHEDULER = scheduler;
+    }
+
+    /**
+     * 任务的执行线程池，异步重试、对冲请求和带超时的重试共用，每次尝试在单独的线程中执行，以便超时或取消时中断
+     */
+    private static final ExecutorService WORKER = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "RetryUtil-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * 对冲请求按 name 记录的最近耗时，样本不足时使用默认延迟
+     */
+    private static final int HEDGE_LATENCY_WINDOW = 1000;
+    private static final int HEDGE_MIN_SAMPLES = 20;
+
+    private static final ConcurrentMap<String, RetryBudget> RETRY_BUDGETS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, CircuitBreaker> CIRCUIT_BREAKERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LatencyWindow> HEDGE_LATENCIES = new ConcurrentHashMap<>();
+
     public static<T> T get(CheckedSupplier<T> task, int retries) throws Exception {
         if (retries <= 0) {
             throw new IllegalArgumentException("retries 必须大于 0");
@@ -27,4 +73,351 @@ public class RetryUtil {
             return null;
         }, retries);
     }
+
+    /**
+     * 带截止时间的重试，每次尝试在共用线程池中执行，超时后中断
+     *
+     * @param timeoutMillis 总截止时间，超过后不再发起新的尝试，抛出 TimeoutException（cause 为最后一次的异常）
+     * @param attemptTimeoutMillis 单次尝试的超时时间，实际超时取其与剩余时间的较小值
+     */
+    public static<T> T get(CheckedSupplier<T> task, int retries, long timeoutMillis, long attemptTimeoutMillis) throws Exception {
+        return get(task, retries, timeoutMillis, attemptTimeoutMillis, e -> true);
+    }
+
+    /**
+     * 带截止时间的重试
+     *
+     * @param retryable 判断异常是否可重试（单次尝试超时为 TimeoutException），不可重试时直接抛出
+     */
+    public static<T> T get(CheckedSupplier<T> task, int retries, long timeoutMillis, long attemptTimeoutMillis, Predicate<Exception> retryable) throws Exception {
+        if (retries <= 0) {
+            throw new IllegalArgumentException("retries 必须大于 0");
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeoutMillis 必须大于 0");
+        }
+        if (attemptTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("attemptTimeoutMillis 必须大于 0");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long attemptTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(attemptTimeoutMillis);
+        Exception throwable = null;
+        for (int i = 0; i < retries; i++) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                TimeoutException timeout = new TimeoutException("重试超过截止时间：" + timeoutMillis + "ms");
+                timeout.initCause(throwable);
+                throw timeout;
+            }
+
+            Future<T> future = WORKER.submit(task::get);
+            try {
+                return future.get(Math.min(attemptTimeoutNanos, remaining), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                throwable = new TimeoutException("单次尝试超时：" + attemptTimeoutMillis + "ms");
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                throw e;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (!(cause instanceof Exception)) {
+                    throw e;
+                }
+                throwable = (Exception) cause;
+            }
+            if (!retryable.test(throwable)) {
+                throw throwable;
+            }
+        }
+        throw throwable;
+    }
+
+    /**
+     * 带重试预算和熔断器的重试，预算和熔断器按 name 共享，可通过 {@link #setRetryBudget} / {@link #setCircuitBreaker} 配置，
+     * 未配置时使用默认值（重试不超过请求数的 10%，连续失败 5 次熔断 30 秒）
+     *
+     * 重试预算耗尽时不再重试，直接抛出最后一次的异常；熔断器打开时抛出 {@link CircuitBreakerOpenException}
+     */
+    public static<T> T get(String name, CheckedSupplier<T> task, int retries) throws Exception {
+        if (retries <= 0) {
+            throw new IllegalArgumentException("retries 必须大于 0");
+        }
+        RetryBudget retryBudget = getRetryBudget(name);
+        CircuitBreaker circuitBreaker = getCircuitBreaker(name);
+
+        retryBudget.onRequest();
+        Exception throwable = null;
+        for (int i = 0; i < retries; i++) {
+            if (i > 0 && !retryBudget.tryRetry()) {
+                break;
+            }
+            if (!circuitBreaker.tryAcquire()) {
+                CircuitBreakerOpenException e = new CircuitBreakerOpenException(name);
+                if (throwable != null) {
+                    e.addSuppressed(throwable);
+                }
+                throw e;
+            }
+            try {
+                T result = task.get();
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (Exception e) {
+                circuitBreaker.onFailure();
+                throwable = e;
+            } catch (Throwable e) {
+                // Error 不重试，但要报告给熔断器，否则半开状态的试探请求没有结果
+                circuitBreaker.onFailure();
+                throw e;
+            }
+        }
+        throw throwable;
+    }
+
+    public static void run(String name, CheckedRunnable task, int retries) throws Exception {
+        get(name, () -> {
+            task.run();
+            return null;
+        }, retries);
+    }
+
+    public static RetryBudget getRetryBudget(String name) {
+        return RETRY_BUDGETS.computeIfAbsent(name, key -> new RetryBudget(10, 100));
+    }
+
+    public static void setRetryBudget(String name, RetryBudget retryBudget) {
+        RETRY_BUDGETS.put(name, retryBudget);
+    }
+
+    public static CircuitBreaker getCircuitBreaker(String name) {
+        return CIRCUIT_BREAKERS.computeIfAbsent(name, key -> new CircuitBreaker(5, 30000));
+    }
+
+    public static void setCircuitBreaker(String name, CircuitBreaker circuitBreaker) {
+        CIRCUIT_BREAKERS.put(name, circuitBreaker);
+    }
+
+    /**
+     * 对冲（hedged）请求：第一次尝试超过 hedgeDelayMillis 仍未返回时，再发起一次尝试，取最先成功的结果并取消其余尝试
+     *
+     * 某次尝试失败时立即发起下一次（不超过上限）；全部尝试失败时抛出最后一次的异常，最后一次为 Error 时抛出 ExecutionException
+     *
+     * @param maxHedges 额外尝试的最大次数，即同时进行中的尝试最多为 1 + maxHedges
+     */
+    public static<T> T getHedged(CheckedSupplier<T> task, long hedgeDelayMillis, int maxHedges) throws Exception {
+        if (hedgeDelayMillis < 0) {
+            throw new IllegalArgumentException("hedgeDelayMillis 不能小于 0");
+        }
+        return await(getHedgedAsync(task, TimeUnit.MILLISECONDS.toNanos(hedgeDelayMillis), maxHedges, null));
+    }
+
+    /**
+     * 对冲请求，对冲延迟取 name 第一次尝试最近耗时的分位数，如 percentile 为 95 时，第一次尝试慢于 p95 才发起额外尝试；
+     * 样本不足时使用 defaultDelayMillis
+     *
+     * 第一次尝试被更快的对冲尝试取代时，记录取消前已经等待的时长，避免只记录快的尝试导致分位数越来越低
+     */
+    public static<T> T getHedged(String name, CheckedSupplier<T> task, double percentile, long defaultDelayMillis, int maxHedges) throws Exception {
+        if (defaultDelayMillis < 0) {
+            throw new IllegalArgumentException("defaultDelayMillis 不能小于 0");
+        }
+        LatencyWindow latencies = HEDGE_LATENCIES.computeIfAbsent(name, key -> new LatencyWindow(HEDGE_LATENCY_WINDOW));
+        long hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(defaultDelayMillis);
+        if (latencies.size() >= HEDGE_MIN_SAMPLES) {
+            // 保留纳秒精度，亚毫秒级的分位数不会被截断为 0 导致每次都立即对冲
+            hedgeDelayNanos = latencies.percentile(percentile);
+        }
+        return await(getHedgedAsync(task, hedgeDelayNanos, maxHedges, latencies));
+    }
+
+    private static <T> CompletableFuture<T> getHedgedAsync(CheckedSupplier<T> task, long hedgeDelayNanos, int maxHedges, LatencyWindow latencies) {
+        if (maxHedges < 0) {
+            throw new IllegalArgumentException("maxHedges 不能小于 0");
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Queue<Future<?>> attempts = new ConcurrentLinkedQueue<>();
+        AtomicInteger launched = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicBoolean firstRecorded = new AtomicBoolean(latencies == null);
+        int maxAttempts = 1 + maxHedges;
+        long firstStart = System.nanoTime();
+
+        Runnable launch = new Runnable() {
+            @Override
+            public void run() {
+                if (result.isDone()) {
+                    return;
+                }
+                int attempt = tryIncrement(launched, maxAttempts);
+                if (attempt < 0) {
+                    return;
+                }
+                Runnable self = this;
+                attempts.add(WORKER.submit(() -> {
+                    try {
+                        T value = task.get();
+                        if (attempt == 0 && firstRecorded.compareAndSet(false, true)) {
+                            latencies.record(System.nanoTime() - firstStart);
+                        }
+                        result.complete(value);
+                    } catch (Throwable e) {
+                        // Error 同样计为一次失败，否则全部尝试结束后 result 也不会完成
+                        if (attempt == 0) {
+                            // 失败的耗时不能作为对冲延迟的参考
+                            firstRecorded.set(true);
+                        }
+                        int failures = failed.incrementAndGet();
+                        if (launched.get() < maxAttempts) {
+                            // 失败时不等对冲延迟，直接发起下一次尝试
+                            self.run();
+                        } else if (failures == maxAttempts) {
+                            result.completeExceptionally(e);
+                        }
+                    }
+                }));
+                if (result.isDone()) {
+                    cancelAll(attempts);
+                }
+            }
+        };
+
+        launch.run();
+        for (int i = 1; i <= maxHedges; i++) {
+            attempts.add(SCHEDULER.schedule(launch, hedgeDelayNanos * i, TimeUnit.NANOSECONDS));
+        }
+        result.whenComplete((value, throwable) -> {
+            // 对冲尝试先成功时第一次尝试还没有返回，记录已经等待的时长（实际耗时的下限）
+            if (throwable == null && firstRecorded.compareAndSet(false, true)) {
+                latencies.record(System.nanoTime() - firstStart);
+            }
+            cancelAll(attempts);
+        });
+        return result;
+    }
+
+    /**
+     * 计数小于 max 时加 1，返回加 1 前的值；已达到 max 时返回 -1
+     */
+    private static int tryIncrement(AtomicInteger counter, int max) {
+        while (true) {
+            int current = counter.get();
+            if (current >= max) {
+                return -1;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return current;
+            }
+        }
+    }
+
+    private static void cancelAll(Queue<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 异步重试，失败后按指数退避 + 全抖动（full jitter）的间隔重新调度，调用线程和执行线程都不会 sleep
+     *
+     * 第 n 次重试前等待 [0, min(maxDelayMillis, baseDelayMillis * 2^(n-1))] 之间的随机时长
+     *
+     * @return 任务成功时完成；全部尝试失败时以最后一次的异常完成；任务抛出 Error 时不重试，直接以该 Error 完成；
+     * 取消返回的 future 会停止后续重试
+     */
+    public static <T> CompletableFuture<T> getAsync(CheckedSupplier<T> task, int retries, long baseDelayMillis, long maxDelayMillis) {
+        return getAsync(task, retries, baseDelayMillis, maxDelayMillis, WORKER);
+    }
+
+    /**
+     * 异步重试，每次尝试在指定的 executor 上执行，重试间隔仍由共用的调度线程池计时
+     */
+    public static <T> CompletableFuture<T> getAsync(CheckedSupplier<T> task, int retries, long baseDelayMillis, long maxDelayMillis, Executor executor) {
+        if (retries <= 0) {
+            throw new IllegalArgumentException("retries 必须大于 0");
+        }
+        if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("baseDelayMillis 不能小于 0，且不能大于 maxDelayMillis");
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(() -> attempt(task, 0, retries, baseDelayMillis, maxDelayMillis, executor, future), executor, future, null);
+        return future;
+    }
+
+    public static CompletableFuture<Void> runAsync(CheckedRunnable task, int retries, long baseDelayMillis, long maxDelayMillis) {
+        return getAsync(() -> {
+            task.run();
+            return null;
+        }, retries, baseDelayMillis, maxDelayMillis);
+    }
+
+    private static <T> void attempt(CheckedSupplier<T> task, int attempt, int retries, long baseDelayMillis, long maxDelayMillis,
+                                    Executor executor, CompletableFuture<T> future) {
+        if (future.isDone()) {
+            return;
+        }
+        try {
+            future.complete(task.get());
+        } catch (Exception e) {
+            if (attempt + 1 >= retries) {
+                future.completeExceptionally(e);
+                return;
+            }
+            long delay = backoffDelay(attempt, baseDelayMillis, maxDelayMillis);
+            Runnable next = () -> attempt(task, attempt + 1, retries, baseDelayMillis, maxDelayMillis, executor, future);
+            try {
+                // 调度线程只负责到时后把下一次尝试交给 executor，不执行任务本身
+                SCHEDULER.schedule(() -> execute(next, executor, future, e), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rejected) {
+                e.addSuppressed(rejected);
+                future.completeExceptionally(e);
+            }
+        } catch (Throwable e) {
+            // Error 不重试，也不能留在执行线程中，否则 future 永远不会完成
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 提交到 executor，被拒绝时以上一次的异常（没有时为拒绝异常）完成 future
+     */
+    private static void execute(Runnable attempt, Executor executor, CompletableFuture<?> future, Exception lastError) {
+        try {
+            executor.execute(attempt);
+        } catch (RejectedExecutionException rejected) {
+            if (lastError != null) {
+                lastError.addSuppressed(rejected);
+                future.completeExceptionally(lastError);
+            } else {
+                future.completeExceptionally(rejected);
+            }
+        }
+    }
+
+    /**
+     * 指数退避 + 全抖动
+     */
+    private static long backoffDelay(int attempt, long baseDelayMillis, long maxDelayMillis) {
+        int shift = Math.min(attempt, 30);
+        long ceiling = baseDelayMillis > (maxDelayMillis >> shift) ? maxDelayMillis : baseDelayMillis << shift;
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
 }
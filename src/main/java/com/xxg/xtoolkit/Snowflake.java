@@ -1,31 +1,66 @@
 package com.xxg.xtoolkit;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
 public class Snowflake {
 
+    /**
+     * How to wait for the next millisecond when the sequence of the current one is exhausted
+     */
+    public enum WaitStrategy {
+        /**
+         * busy-spin on the clock, lowest latency, burns a core while waiting
+         */
+        SPIN,
+        /**
+         * Thread.yield() between clock reads
+         */
+        YIELD,
+        /**
+         * park the thread for a short while between clock reads
+         */
+        PARK
+    }
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
     /**
      * configured machine id - 10 bits - gives us up to 1024 machines
      */
-    private static final int BITS_MACHINE_ID = 10;
+    static final int BITS_MACHINE_ID = 10;
 
     /**
      * sequence number - 12 bits - rolls over every 4096 per machine (with protection to avoid rollover in the same ms)
      */
-    private static final int BITS_SEQUENCE_NUMBER = 12;
+    static final int BITS_SEQUENCE_NUMBER = 12;
 
 
-    private static final long MAX_MACHINE_ID = (1L << BITS_MACHINE_ID) - 1;
-    private static final long MAX_SEQUENCE_NUMBER = (1L << BITS_SEQUENCE_NUMBER) - 1;
+    static final long MAX_MACHINE_ID = (1L << BITS_MACHINE_ID) - 1;
+    static final long MAX_SEQUENCE_NUMBER = (1L << BITS_SEQUENCE_NUMBER) - 1;
 
     /**
      * Default Custom Epoch (January 1, 2015 Midnight UTC = 2020-01-01T00:00:00Z)
      */
-    private static final long DEFAULT_CUSTOM_EPOCH = 1577836800000L;
+    static final long DEFAULT_CUSTOM_EPOCH = 1577836800000L;
 
     private final long machineId;
     private final long customEpoch;
 
-    private long millisecond = -1L;
-    private long sequence = 0L;
+    /**
+     * millisecond and sequence packed into one word: millisecond << BITS_SEQUENCE_NUMBER | sequence,
+     * so both fields are always updated together by a single CAS
+     */
+    private final AtomicLong state = new AtomicLong(-1L << BITS_SEQUENCE_NUMBER);
+
+    private volatile WaitStrategy waitStrategy = WaitStrategy.SPIN;
+    private volatile long maxClockBackwardMillis = 0L;
+
+    private final LongAdder sequenceExhaustedCount = new LongAdder();
+    private final LongAdder clockBackwardCount = new LongAdder();
+    private final LongAdder invalidClockCount = new LongAdder();
 
     /**
      * Create Snowflake with a machineId and custom epoch
@@ -45,29 +80,146 @@ public class Snowflake {
         this(machineId, DEFAULT_CUSTOM_EPOCH);
     }
 
-    public synchronized long nextId() {
-        long currentMilliseconds = currentMilliseconds();
+    public long getMachineId() {
+        return machineId;
+    }
+
+    public long getCustomEpoch() {
+        return customEpoch;
+    }
+
+    /**
+     * Wait strategy used when the 4096 sequences of a millisecond run out, default {@link WaitStrategy#SPIN}
+     */
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Tolerate the system clock stepping backwards by up to maxClockBackwardMillis (e.g. NTP adjustments):
+     * ids keep being issued on the last issued millisecond instead of failing. Default 0, fail on any backwards step.
+     */
+    public void setMaxClockBackwardMillis(long maxClockBackwardMillis) {
+        if (maxClockBackwardMillis < 0) {
+            throw new IllegalArgumentException("maxClockBackwardMillis must not be negative");
+        }
+        this.maxClockBackwardMillis = maxClockBackwardMillis;
+    }
+
+    /**
+     * How many times a caller had to wait for the next millisecond because the sequence was exhausted
+     */
+    public long getSequenceExhaustedCount() {
+        return sequenceExhaustedCount.sum();
+    }
+
+    /**
+     * How many times ids were issued on the last issued millisecond because the clock had stepped backwards
+     */
+    public long getClockBackwardCount() {
+        return clockBackwardCount.sum();
+    }
+
+    /**
+     * How many times nextId() failed because the clock stepped backwards further than tolerated
+     */
+    public long getInvalidClockCount() {
+        return invalidClockCount.sum();
+    }
+
+    /**
+     * Lock-free: concurrent callers race on a CAS of the packed state instead of queueing on a monitor
+     */
+    public long nextId() {
+        return toId(reserve(1));
+    }
+
+    /**
+     * Generate n ids in one go, ordered and unique
+     */
+    public long[] nextIds(int n) {
+        long[] ids = new long[n];
+        nextIds(ids, 0, n);
+        return ids;
+    }
 
-        if (currentMilliseconds < millisecond) {
-            throw new IllegalStateException("Invalid System Clock!");
-        } else if (currentMilliseconds == millisecond) {
-            sequence = (sequence + 1) & MAX_SEQUENCE_NUMBER;
-            if (sequence == 0) {
-                // Sequence Exhausted, wait till next millisecond.
-                millisecond = waitNextMillis(currentMilliseconds);
+    /**
+     * Fill ids[offset, offset + length) with ordered and unique ids. Each millisecond tick is claimed
+     * with a single CAS for up to 4096 ids, instead of one CAS and clock read per id.
+     */
+    public void nextIds(long[] ids, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > ids.length) {
+            throw new IndexOutOfBoundsException(String.format("offset %d, length %d, array length %d", offset, length, ids.length));
+        }
+        int end = offset + length;
+        while (offset < end) {
+            long first = reserve(end - offset);
+            int count = reservedCount(first, end - offset);
+            for (int i = 0; i < count; i++) {
+                ids[offset++] = toId(first + i);
             }
-        } else {
-            // reset sequence to start with zero for the next millisecond
-            sequence = 0;
         }
+    }
 
-        millisecond = currentMilliseconds;
+    /**
+     * Claim a contiguous range of sequences within one millisecond, at most count of them.
+     * @return the packed state of the first claimed sequence, see {@link #reservedCount(long, int)} for the size of the range
+     */
+    private long reserve(int count) {
+        while (true) {
+            // read the state before the clock, so a concurrent update can never look like a clock going backwards
+            long last = state.get();
+            long lastMilliseconds = last >> BITS_SEQUENCE_NUMBER;
+            long currentMilliseconds = currentMilliseconds();
+
+            long first;
+            boolean clockBackward = false;
+            if (currentMilliseconds < lastMilliseconds) {
+                if (lastMilliseconds - currentMilliseconds > maxClockBackwardMillis) {
+                    invalidClockCount.increment();
+                    throw new IllegalStateException("Invalid System Clock!");
+                }
+                // small backwards step, keep issuing on the last millisecond
+                clockBackward = true;
+            }
+            if (currentMilliseconds <= lastMilliseconds) {
+                if ((last & MAX_SEQUENCE_NUMBER) == MAX_SEQUENCE_NUMBER) {
+                    // Sequence Exhausted, wait till next millisecond.
+                    sequenceExhaustedCount.increment();
+                    waitNextMillis(lastMilliseconds);
+                    continue;
+                }
+                first = last + 1;
+            } else {
+                // reset sequence to start with zero for the next millisecond
+                first = currentMilliseconds << BITS_SEQUENCE_NUMBER;
+            }
+
+            if (state.compareAndSet(last, first + reservedCount(first, count) - 1)) {
+                if (clockBackward) {
+                    clockBackwardCount.increment();
+                }
+                return first;
+            }
+        }
+    }
 
-        long id = currentMilliseconds << (BITS_MACHINE_ID + BITS_SEQUENCE_NUMBER)
+    /**
+     * Number of sequences claimed by {@link #reserve(int)}: the request, capped by what is left in the millisecond
+     */
+    private static int reservedCount(long first, int count) {
+        return (int) Math.min(count, MAX_SEQUENCE_NUMBER - (first & MAX_SEQUENCE_NUMBER) + 1);
+    }
+
+    /**
+     * Build the id from a packed millisecond/sequence state
+     */
+    private long toId(long state) {
+        long millisecond = state >> BITS_SEQUENCE_NUMBER;
+        long sequence = state & MAX_SEQUENCE_NUMBER;
+        return millisecond << (BITS_MACHINE_ID + BITS_SEQUENCE_NUMBER)
                 | (machineId << BITS_SEQUENCE_NUMBER)
                 | sequence;
-
-        return id;
     }
 
     /**
@@ -80,8 +232,15 @@ public class Snowflake {
     /**
      * Block and wait till next millisecond
      */
-    private long waitNextMillis(long currentTimestamp) {
-        while (currentTimestamp == millisecond) {
+    private long waitNextMillis(long lastMilliseconds) {
+        WaitStrategy strategy = waitStrategy;
+        long currentTimestamp = currentMilliseconds();
+        while (currentTimestamp <= lastMilliseconds) {
+            if (strategy == WaitStrategy.YIELD) {
+                Thread.yield();
+            } else if (strategy == WaitStrategy.PARK) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
             currentTimestamp = currentMilliseconds();
         }
         return currentTimestamp;
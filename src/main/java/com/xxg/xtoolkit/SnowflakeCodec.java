@@ -0,0 +1,216 @@
+package com.xxg.xtoolkit;
+
+import java.util.Arrays;
+
+/**
+ * Compact string encoding of {@link Snowflake} ids, and decomposition of an id into its fields.
+ *
+ * Encoding writes into a caller supplied char[] or StringBuilder and decoding reads from a CharSequence or char[],
+ * neither allocates. Both alphabets are in ascending ASCII order, so encoded ids of the same length sort like the ids.
+ */
+public class SnowflakeCodec {
+
+    private static final char[] BASE62_DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    /**
+     * Crockford's base32, case-insensitive on decode and without the ambiguous I, L, O, U
+     */
+    private static final char[] BASE32_DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    /**
+     * Max length of an encoded non-negative long
+     */
+    public static final int MAX_BASE62_LENGTH = 11;
+    public static final int MAX_BASE32_LENGTH = 13;
+
+    private static final byte[] BASE62_VALUES = new byte[128];
+    private static final byte[] BASE32_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE62_VALUES, (byte) -1);
+        for (int i = 0; i < BASE62_DIGITS.length; i++) {
+            BASE62_VALUES[BASE62_DIGITS[i]] = (byte) i;
+        }
+        Arrays.fill(BASE32_VALUES, (byte) -1);
+        for (int i = 0; i < BASE32_DIGITS.length; i++) {
+            BASE32_VALUES[BASE32_DIGITS[i]] = (byte) i;
+            BASE32_VALUES[Character.toLowerCase(BASE32_DIGITS[i])] = (byte) i;
+        }
+    }
+
+    /**
+     * Milliseconds since the Unix epoch at which the id was generated, for ids using the default custom epoch
+     */
+    public static long getTimestamp(long id) {
+        return getTimestamp(id, Snowflake.DEFAULT_CUSTOM_EPOCH);
+    }
+
+    /**
+     * Milliseconds since the Unix epoch at which the id was generated
+     */
+    public static long getTimestamp(long id, long customEpoch) {
+        return (id >>> (Snowflake.BITS_MACHINE_ID + Snowflake.BITS_SEQUENCE_NUMBER)) + customEpoch;
+    }
+
+    public static long getMachineId(long id) {
+        return (id >>> Snowflake.BITS_SEQUENCE_NUMBER) & Snowflake.MAX_MACHINE_ID;
+    }
+
+    public static long getSequence(long id) {
+        return id & Snowflake.MAX_SEQUENCE_NUMBER;
+    }
+
+    public static String toBase62(long id) {
+        char[] buf = new char[MAX_BASE62_LENGTH];
+        int length = encodeBase62(id, buf, 0);
+        return new String(buf, 0, length);
+    }
+
+    public static String toBase32(long id) {
+        char[] buf = new char[MAX_BASE32_LENGTH];
+        int length = encodeBase32(id, buf, 0);
+        return new String(buf, 0, length);
+    }
+
+    /**
+     * Write the base62 form of id into buf starting at offset
+     * @return number of chars written, at most {@link #MAX_BASE62_LENGTH}
+     */
+    public static int encodeBase62(long id, char[] buf, int offset) {
+        checkId(id);
+        int length = 1;
+        for (long v = id / 62; v > 0; v /= 62) {
+            length++;
+        }
+        long v = id;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buf[i] = BASE62_DIGITS[(int) (v % 62)];
+            v /= 62;
+        }
+        return length;
+    }
+
+    /**
+     * Write the base32 form of id into buf starting at offset
+     * @return number of chars written, at most {@link #MAX_BASE32_LENGTH}
+     */
+    public static int encodeBase32(long id, char[] buf, int offset) {
+        checkId(id);
+        int length = id == 0 ? 1 : (64 - Long.numberOfLeadingZeros(id) + 4) / 5;
+        long v = id;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buf[i] = BASE32_DIGITS[(int) (v & 31)];
+            v >>>= 5;
+        }
+        return length;
+    }
+
+    public static StringBuilder appendBase62(long id, StringBuilder sb) {
+        checkId(id);
+        int start = sb.length();
+        long v = id;
+        do {
+            sb.append(BASE62_DIGITS[(int) (v % 62)]);
+            v /= 62;
+        } while (v > 0);
+        return reverse(sb, start);
+    }
+
+    public static StringBuilder appendBase32(long id, StringBuilder sb) {
+        checkId(id);
+        int start = sb.length();
+        long v = id;
+        do {
+            sb.append(BASE32_DIGITS[(int) (v & 31)]);
+            v >>>= 5;
+        } while (v > 0);
+        return reverse(sb, start);
+    }
+
+    public static long decodeBase62(CharSequence s) {
+        return decodeBase62(s, 0, s.length());
+    }
+
+    public static long decodeBase62(CharSequence s, int offset, int length) {
+        checkLength(length, MAX_BASE62_LENGTH);
+        long id = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = digit(BASE62_VALUES, s.charAt(i));
+            if (id > (Long.MAX_VALUE - digit) / 62) {
+                throw new IllegalArgumentException("Base62 id overflows long: " + s);
+            }
+            id = id * 62 + digit;
+        }
+        return id;
+    }
+
+    public static long decodeBase62(char[] buf, int offset, int length) {
+        checkLength(length, MAX_BASE62_LENGTH);
+        long id = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = digit(BASE62_VALUES, buf[i]);
+            if (id > (Long.MAX_VALUE - digit) / 62) {
+                throw new IllegalArgumentException("Base62 id overflows long: " + new String(buf, offset, length));
+            }
+            id = id * 62 + digit;
+        }
+        return id;
+    }
+
+    public static long decodeBase32(CharSequence s) {
+        return decodeBase32(s, 0, s.length());
+    }
+
+    public static long decodeBase32(CharSequence s, int offset, int length) {
+        checkLength(length, MAX_BASE32_LENGTH);
+        if (length == MAX_BASE32_LENGTH && digit(BASE32_VALUES, s.charAt(offset)) > 7) {
+            throw new IllegalArgumentException("Base32 id overflows long: " + s);
+        }
+        long id = 0;
+        for (int i = offset; i < offset + length; i++) {
+            id = (id << 5) | digit(BASE32_VALUES, s.charAt(i));
+        }
+        return id;
+    }
+
+    public static long decodeBase32(char[] buf, int offset, int length) {
+        checkLength(length, MAX_BASE32_LENGTH);
+        if (length == MAX_BASE32_LENGTH && digit(BASE32_VALUES, buf[offset]) > 7) {
+            throw new IllegalArgumentException("Base32 id overflows long: " + new String(buf, offset, length));
+        }
+        long id = 0;
+        for (int i = offset; i < offset + length; i++) {
+            id = (id << 5) | digit(BASE32_VALUES, buf[i]);
+        }
+        return id;
+    }
+
+    private static int digit(byte[] values, char c) {
+        int value = c < 128 ? values[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid character in encoded id: " + c);
+        }
+        return value;
+    }
+
+    private static void checkId(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Snowflake id must not be negative: " + id);
+        }
+    }
+
+    private static void checkLength(int length, int maxLength) {
+        if (length <= 0 || length > maxLength) {
+            throw new IllegalArgumentException(String.format("Encoded id length must be between %d and %d", 1, maxLength));
+        }
+    }
+
+    private static StringBuilder reverse(StringBuilder sb, int start) {
+        for (int i = start, j = sb.length() - 1; i < j; i++, j--) {
+            char c = sb.charAt(i);
+            sb.setCharAt(i, sb.charAt(j));
+            sb.setCharAt(j, c);
+        }
+        return sb;
+    }
+}
@@ -1,15 +1,33 @@
 package com.xxg.xtoolkit;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
-import java.io.IOException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * 只有一层子节点的 XML（如支付回调的 &lt;xml&gt;&lt;k&gt;v&lt;/k&gt;&lt;/xml&gt;）直接使用 StAX 读取、拼接字符串写入，
+ * 不经过 Jackson 数据绑定；包含属性、多层嵌套等其他情况仍然使用 Jackson，结果与之前一致
+ */
 public class XmlUtil {
 
     private static XmlMapper xmlMapper = new XmlMapper();
 
+    /**
+     * 与 xmlMapper 使用相同配置的 XMLInputFactory
+     */
+    private static final XMLInputFactory XML_INPUT_FACTORY = xmlMapper.getFactory().getXMLInputFactory();
+
+    private static final int EXPECTED_ENTRIES = 32;
+
     /**
      * Map 转 XML
      * @param root XML 根节点名称，如 person
@@ -17,17 +35,252 @@ public class XmlUtil {
      * @return <person><name>jack</name><age>18</age></person>
      */
     public static String mapToXml(String root, Map<String, String> map) throws JsonProcessingException {
-        String xml = xmlMapper.writer().withRootName(root).writeValueAsString(map);
+        String xml = writeFlat(root, map);
+        if (xml == null) {
+            xml = xmlMapper.writer().withRootName(root).writeValueAsString(map);
+        }
         return xml;
     }
 
+    /**
+     * Map 转 UTF-8 编码的 XML
+     */
+    public static byte[] mapToXmlBytes(String root, Map<String, String> map) throws JsonProcessingException {
+        String xml = writeFlat(root, map);
+        if (xml == null) {
+            return xmlMapper.writer().withRootName(root).writeValueAsBytes(map);
+        }
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Map 转 UTF-8 编码的 XML 写入输出流，不会关闭输出流
+     */
+    public static void writeXml(OutputStream outputStream, String root, Map<String, String> map) throws IOException {
+        outputStream.write(mapToXmlBytes(root, map));
+    }
+
     /**
      * XML 转 Map
      * @param xml 如 <person><name>jack</name><age>18</age></person>
      * @return map {name=jack,age=18}
      */
     public static Map<String, String> xmlToMap(String xml) throws IOException {
-        Map<String, String> map = xmlMapper.readValue(xml, Map.class);
+        Map<String, String> map;
+        try {
+            map = readFlat(XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(xml)));
+        } catch (XMLStreamException e) {
+            map = null;
+        }
+        if (map == null) {
+            map = readMap(xmlMapper.getFactory().createParser(xml));
+        }
         return map;
     }
+
+    /**
+     * XML 转 Map，编码按 XML 声明识别，默认 UTF-8
+     */
+    public static Map<String, String> xmlToMap(byte[] xml) throws IOException {
+        Map<String, String> map;
+        try {
+            map = readFlat(XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(xml)));
+        } catch (XMLStreamException e) {
+            map = null;
+        }
+        if (map == null) {
+            map = readMap(xmlMapper.getFactory().createParser(xml));
+        }
+        return map;
+    }
+
+    /**
+     * 使用 Jackson 解析，嵌套的节点为 Map，重复的节点为 List，值不一定都是 String
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> readMap(JsonParser parser) throws IOException {
+        try (JsonParser p = parser) {
+            return xmlMapper.readValue(p, Map.class);
+        }
+    }
+
+    /**
+     * 从输入流读取 XML 转 Map，不会关闭输入流
+     */
+    public static Map<String, String> xmlToMap(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return xmlToMap(out.toByteArray());
+    }
+
+    /**
+     * 读取只有一层子节点、没有属性的 XML，不是这种格式或者解析失败时返回 null，由 Jackson 重新解析并给出一致的结果或异常
+     */
+    private static Map<String, String> readFlat(XMLStreamReader reader) throws XMLStreamException {
+        try {
+            // 根节点
+            if (!nextElement(reader) || reader.getAttributeCount() > 0) {
+                return null;
+            }
+            Map<String, String> map = new LinkedHashMap<>(EXPECTED_ENTRIES);
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (reader.getAttributeCount() > 0) {
+                            return null;
+                        }
+                        String key = reader.getLocalName();
+                        String value = readText(reader);
+                        if (value == null) {
+                            return null;
+                        }
+                        map.put(key, value);
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        // 根节点下除空白外的文本
+                        if (!reader.isWhiteSpace()) {
+                            return null;
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        return map;
+                    default:
+                        break;
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 跳过 XML 声明、注释等，移动到根节点，有 DTD 时返回 false
+     */
+    private static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.DTD) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取子节点的文本，CDATA 视为文本，忽略注释，子节点下还有节点时返回 null
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        String text = "";
+        StringBuilder builder = null;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (text.isEmpty()) {
+                        text = reader.getText();
+                    } else {
+                        if (builder == null) {
+                            builder = new StringBuilder(text);
+                        }
+                        builder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return builder != null ? builder.toString() : text;
+                case XMLStreamConstants.START_ELEMENT:
+                    return null;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 直接拼接 XML，输出与 Jackson 一致；Jackson 会另外处理的情况（null 键、非 String 值、非法字符等）返回 null
+     */
+    private static String writeFlat(String root, Map<String, String> map) {
+        if (root == null) {
+            return null;
+        }
+        if (map == null || map.isEmpty()) {
+            return "<" + root + "/>";
+        }
+        StringBuilder builder = new StringBuilder(64 + map.size() * 32);
+        builder.append('<').append(root).append('>');
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (key == null) {
+                return null;
+            }
+            if (value == null) {
+                builder.append('<').append(key).append("/>");
+                continue;
+            }
+            if (!(value instanceof String)) {
+                return null;
+            }
+            builder.append('<').append(key).append('>');
+            if (!escape((String) value, builder)) {
+                return null;
+            }
+            builder.append("</").append(key).append('>');
+        }
+        builder.append("</").append(root).append('>');
+        return builder.toString();
+    }
+
+    /**
+     * 转义 &amp;、&lt;、]&gt; 中的 &gt; 和 \r，U+007F ~ U+009F 写为字符引用，遇到 XML 1.0 不允许的控制字符时返回 false
+     */
+    private static boolean escape(String text, StringBuilder builder) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    builder.append("&amp;");
+                    break;
+                case '<':
+                    builder.append("&lt;");
+                    break;
+                case '>':
+                    if (i > 0 && text.charAt(i - 1) == ']') {
+                        builder.append("&gt;");
+                    } else {
+                        builder.append(c);
+                    }
+                    break;
+                case '\r':
+                    builder.append("&#xd;");
+                    break;
+                case '\t':
+                case '\n':
+                    builder.append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c == 0xFFFE || c == 0xFFFF) {
+                        return false;
+                    }
+                    if (c >= 0x7F && c <= 0x9F) {
+                        // 与 Jackson（Woodstox）一致，DEL 和 C1 控制字符写为字符引用
+                        builder.append("&#x").append(Integer.toHexString(c)).append(';');
+                    } else {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
 }
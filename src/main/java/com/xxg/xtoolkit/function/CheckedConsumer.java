@@ -0,0 +1,6 @@
+package com.xxg.xtoolkit.function;
+
+@FunctionalInterface
+public interface CheckedConsumer<T> {
+    void accept(T t) throws Exception;
+}
@@ -0,0 +1,6 @@
+package com.xxg.xtoolkit.function;
+
+@FunctionalInterface
+public interface CheckedFunction<T, R> {
+    R apply(T t) throws Exception;
+}
@@ -0,0 +1,6 @@
+package com.xxg.xtoolkit.function;
+
+@FunctionalInterface
+public interface ProgressListener {
+    void onProgress(long completedBytes, long totalBytes);
+}
@@ -0,0 +1,62 @@
+package com.xxg.xtoolkit;
+
+import org.junit.Assume;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 基准测试的公共方法，基准测试默认跳过，通过 mvn test -Dbenchmark=true 运行
+ */
+final class Benchmarks {
+
+    /**
+     * 每个操作预热和计时的时长
+     */
+    private static final long MEASURE_MILLIS = 500;
+
+    private Benchmarks() {
+    }
+
+    interface Operation {
+        /**
+         * @return 不能为 null，避免操作被 JIT 当作无用代码消除
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * 没有指定 -Dbenchmark=true 时跳过当前测试
+     */
+    static void assumeEnabled() {
+        Assume.assumeTrue("基准测试通过 -Dbenchmark=true 开启", Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * 依次测量每个操作的平均耗时（纳秒），返回值与参数顺序一致
+     *
+     * 所有操作都预热后再计时，避免先计时的操作受 JIT 编译影响
+     */
+    static double[] nanosPerOp(Operation... operations) throws Exception {
+        for (Operation operation : operations) {
+            measure(operation);
+        }
+        double[] result = new double[operations.length];
+        for (int i = 0; i < operations.length; i++) {
+            result[i] = measure(operations[i]);
+        }
+        return result;
+    }
+
+    private static double measure(Operation operation) throws Exception {
+        long count = 0;
+        Object sink = null;
+        long start = System.nanoTime();
+        long deadline = start + MEASURE_MILLIS * 1_000_000L;
+        while (System.nanoTime() < deadline) {
+            sink = operation.run();
+            count++;
+        }
+        assertNotNull(sink);
+        return (double) (System.nanoTime() - start) / count;
+    }
+}
@@ -0,0 +1,155 @@
+package com.xxg.xtoolkit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonPointerExtractorTest {
+
+    private static final String JSON = "{\"header\":{\"type\":\"PAY\",\"version\":2},"
+            + "\"order\":{\"id\":1001,\"items\":[{\"name\":\"a\"},{\"name\":\"b\"}],\"tags\":[\"x\",\"y\"]},"
+            + "\"a/b\":{\"c~d\":true},\"empty\":null}";
+
+    @Test
+    public void extractsNestedFieldsAndArrayElements() throws IOException {
+        JsonNode[] result = new JsonPointerExtractor("/header/type", "/order/id", "/order/items/1/name", "/order/tags/0")
+                .extract(JSON);
+        assertEquals("PAY", result[0].asText());
+        assertEquals(1001, result[1].asInt());
+        assertEquals("b", result[2].asText());
+        assertEquals("x", result[3].asText());
+    }
+
+    @Test
+    public void missingFieldsAreNull() throws IOException {
+        JsonNode[] result = new JsonPointerExtractor("/header/nope", "/order/items/5/name", "/header/type/deeper", "/empty")
+                .extract(JSON);
+        assertNull(result[0]);
+        assertNull(result[1]);
+        assertNull(result[2]);
+        assertTrue(result[3].isNull());
+    }
+
+    @Test
+    public void prefixPointersInEitherOrder() throws IOException {
+        for (JsonPointerExtractor extractor : new JsonPointerExtractor[]{
+                new JsonPointerExtractor("/order", "/order/items/0/name", ""),
+                new JsonPointerExtractor("", "/order/items/0/name", "/order")}) {
+            JsonNode[] result = extractor.extract(JSON);
+            JsonNode order = result[0].has("id") ? result[0] : result[2];
+            JsonNode whole = result[0].has("header") ? result[0] : result[2];
+            assertEquals(1001, order.get("id").asInt());
+            assertEquals("a", result[1].asText());
+            assertEquals("PAY", whole.at("/header/type").asText());
+        }
+    }
+
+    @Test
+    public void escapedFieldNames() throws IOException {
+        JsonNode[] result = new JsonPointerExtractor("/a~1b/c~0d").extract(JSON.getBytes(StandardCharsets.UTF_8));
+        assertTrue(result[0].asBoolean());
+    }
+
+    @Test
+    public void matchesFullBinding() throws IOException {
+        byte[] json = largePayload(true);
+        JsonNode[] result = new JsonPointerExtractor("/header/type", "/order/id").extract(json);
+        Map<?, ?> map = JsonUtil.parseJSON(json, Map.class);
+        assertEquals(((Map<?, ?>) map.get("header")).get("type"), result[0].asText());
+        assertEquals(((Map<?, ?>) map.get("order")).get("id"), result[1].asInt());
+    }
+
+    @Test
+    public void stopsReadingOnceAllFieldsAreFound() throws IOException {
+        byte[] json = largePayload(true);
+        // 截断后的 JSON 不完整，完整解析会失败，提取的字段都在前面所以不受影响
+        byte[] truncated = new byte[json.length / 2];
+        System.arraycopy(json, 0, truncated, 0, truncated.length);
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(truncated));
+
+        JsonNode[] result = new JsonPointerExtractor("/header/type", "/order/id").extract(in);
+        assertEquals("PAY", result[0].asText());
+        assertEquals(1001, result[1].asInt());
+        assertTrue("read " + in.count + " of " + truncated.length + " bytes", in.count < truncated.length);
+        try {
+            JsonUtil.parseJSON(truncated, Map.class);
+            fail("truncated JSON must not bind");
+        } catch (IOException expected) {
+            // 预期的异常
+        }
+    }
+
+    /**
+     * 对比按 JSON Pointer 提取两个字段与完整绑定为 Map 的耗时，字段分别位于数据的开头和结尾
+     */
+    @Test
+    public void benchmarkAgainstFullBinding() throws Exception {
+        Benchmarks.assumeEnabled();
+        JsonPointerExtractor extractor = new JsonPointerExtractor("/header/type", "/order/id");
+        byte[] fieldsFirst = largePayload(true);
+        byte[] fieldsLast = largePayload(false);
+        double[] nanos = Benchmarks.nanosPerOp(
+                () -> extractor.extract(fieldsFirst),
+                () -> ((Map<?, ?>) JsonUtil.parseJSON(fieldsFirst, Map.class).get("order")).get("id"),
+                () -> extractor.extract(fieldsLast),
+                () -> ((Map<?, ?>) JsonUtil.parseJSON(fieldsLast, Map.class).get("order")).get("id"));
+        System.out.printf("JsonPointerExtractor %,d bytes, fields first: extract %,.0f ns/op, full binding %,.0f ns/op%n",
+                fieldsFirst.length, nanos[0], nanos[1]);
+        System.out.printf("JsonPointerExtractor %,d bytes, fields last: extract %,.0f ns/op, full binding %,.0f ns/op%n",
+                fieldsLast.length, nanos[2], nanos[3]);
+    }
+
+    /**
+     * 约 170KB 的订单数据，header 和 order.id 位于开头或结尾
+     */
+    private static byte[] largePayload(boolean fieldsFirst) {
+        StringBuilder items = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            if (i > 0) {
+                items.append(',');
+            }
+            items.append("{\"sku\":\"SKU-").append(i).append("\",\"quantity\":").append(i % 7 + 1)
+                    .append(",\"price\":").append(i * 1.5).append(",\"attributes\":{\"color\":\"red\",\"size\":\"L\"}}");
+        }
+        items.append(']');
+        String header = "\"header\":{\"type\":\"PAY\",\"version\":2}";
+        String json = fieldsFirst
+                ? "{" + header + ",\"order\":{\"id\":1001,\"items\":" + items + "}}"
+                : "{\"order\":{\"items\":" + items + ",\"id\":1001}," + header + "}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final InputStream in;
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
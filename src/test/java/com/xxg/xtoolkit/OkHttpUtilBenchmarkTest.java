@@ -0,0 +1,210 @@
+package com.xxg.xtoolkit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * OkHttpUtil 的吞吐量和延迟基准：进程内的 JDK HttpServer 作为服务端，不需要网络
+ *
+ * 覆盖 get、postJson、uploadFile、downloadFile，在不同的数据大小和并发数下输出 p50 / p99 延迟和每秒请求数，
+ * 每个场景的请求数可以通过 -Dbenchmark.requests 调整，通过 mvn test -Dbenchmark=true 运行
+ */
+public class OkHttpUtilBenchmarkTest {
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 200);
+    private static final int[] PAYLOAD_SIZES = {1024, 64 * 1024};
+    private static final int[] CONCURRENCY_LEVELS = {1, 8, 32};
+
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private static String previousNodelay;
+    private static HttpServer server;
+    private static ExecutorService serverExecutor;
+    private static String baseUrl;
+
+    private final OkHttpUtil okHttpUtil = new OkHttpUtil();
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        Benchmarks.assumeEnabled();
+        // JDK HttpServer 默认没有开启 TCP_NODELAY，小响应会因为 Nagle 和延迟 ACK 多等约 40ms
+        previousNodelay = System.setProperty(NODELAY_PROPERTY, "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        // 返回 size 字节
+        server.createContext("/bytes", exchange -> {
+            int size = Integer.parseInt(exchange.getRequestURI().getQuery().substring("size=".length()));
+            byte[] body = new byte[size];
+            Arrays.fill(body, (byte) 'a');
+            respond(exchange, body);
+        });
+        // 读完请求 BODY，返回其长度
+        server.createContext("/echo", exchange -> {
+            long length = drain(exchange.getRequestBody());
+            respond(exchange, String.valueOf(length).getBytes());
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        if (previousNodelay == null) {
+            System.clearProperty(NODELAY_PROPERTY);
+        } else {
+            System.setProperty(NODELAY_PROPERTY, previousNodelay);
+        }
+    }
+
+    @Test
+    public void get() throws Exception {
+        for (int size : PAYLOAD_SIZES) {
+            String url = baseUrl + "/bytes?size=" + size;
+            benchmark("get", size, thread -> assertEquals(size, okHttpUtil.get(url).length()));
+        }
+    }
+
+    @Test
+    public void postJson() throws Exception {
+        for (int size : PAYLOAD_SIZES) {
+            String json = jsonOfSize(size);
+            String url = baseUrl + "/echo";
+            benchmark("postJson", size, thread -> assertEquals(String.valueOf(json.length()), okHttpUtil.postJson(url, json)));
+        }
+    }
+
+    @Test
+    public void uploadFile() throws Exception {
+        for (int size : PAYLOAD_SIZES) {
+            File file = tempFile(size);
+            String url = baseUrl + "/echo";
+            benchmark("uploadFile", size, thread -> {
+                long multipartLength = Long.parseLong(okHttpUtil.uploadFile(url, "file", file));
+                assertTrue(multipartLength > size);
+            });
+        }
+    }
+
+    @Test
+    public void downloadFile() throws Exception {
+        for (int size : PAYLOAD_SIZES) {
+            String url = baseUrl + "/bytes?size=" + size;
+            File[] files = new File[max(CONCURRENCY_LEVELS)];
+            for (int i = 0; i < files.length; i++) {
+                files[i] = tempFile(0);
+            }
+            benchmark("downloadFile", size, thread -> {
+                okHttpUtil.downloadFile(url, files[thread]);
+                assertEquals(size, files[thread].length());
+            });
+        }
+    }
+
+    private interface Operation {
+        /**
+         * @param thread 执行线程的编号，从 0 开始
+         */
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * 每个并发数下先预热，再由 concurrency 个线程共执行 REQUESTS 次请求
+     */
+    private static void benchmark(String name, int payloadSize, Operation operation) throws Exception {
+        for (int concurrency : CONCURRENCY_LEVELS) {
+            run(concurrency, Math.min(REQUESTS, 20), operation, null);
+            LatencyWindow latencies = new LatencyWindow(REQUESTS);
+            long start = System.nanoTime();
+            run(concurrency, REQUESTS, operation, latencies);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-12s payload %6d B  concurrency %2d  p50 %8.3f ms  p99 %8.3f ms  %8.0f req/s%n",
+                    name, payloadSize, concurrency, latencies.percentile(50) / 1e6, latencies.percentile(99) / 1e6, REQUESTS / seconds);
+        }
+    }
+
+    private static void run(int concurrency, int requests, Operation operation, LatencyWindow latencies) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            AtomicInteger remaining = new AtomicInteger(requests);
+            Future<?>[] futures = new Future<?>[concurrency];
+            for (int t = 0; t < concurrency; t++) {
+                int thread = t;
+                futures[t] = executor.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long start = System.nanoTime();
+                        operation.run(thread);
+                        if (latencies != null) {
+                            latencies.record(System.nanoTime() - start);
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static long drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+        }
+        return total;
+    }
+
+    private static String jsonOfSize(int size) {
+        StringBuilder builder = new StringBuilder(size);
+        builder.append("{\"data\":\"");
+        while (builder.length() < size - 2) {
+            builder.append('x');
+        }
+        return builder.append("\"}").toString();
+    }
+
+    private static File tempFile(int size) throws IOException {
+        File file = File.createTempFile("okhttp-benchmark", ".bin");
+        file.deleteOnExit();
+        byte[] content = new byte[size];
+        Arrays.fill(content, (byte) 'b');
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static int max(int[] values) {
+        return Arrays.stream(values).max().getAsInt();
+    }
+}
@@ -0,0 +1,134 @@
+package com.xxg.xtoolkit;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SnowflakeTest {
+
+    private static final int IDS_PER_THREAD = 200_000;
+    private static final long THROUGHPUT_MILLIS = 500;
+
+    @Test
+    public void idsAreUniqueAndOrderedPerThreadUnderContention() throws Exception {
+        Snowflake snowflake = new Snowflake(1);
+        int threads = 8;
+        long[][] ids = new long[threads][IDS_PER_THREAD];
+        runConcurrently(threads, index -> {
+            long[] own = ids[index];
+            for (int i = 0; i < own.length; i++) {
+                own[i] = snowflake.nextId();
+            }
+        });
+
+        long[] all = new long[threads * IDS_PER_THREAD];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 1; i < IDS_PER_THREAD; i++) {
+                assertTrue("ids of one thread must be strictly increasing", ids[t][i] > ids[t][i - 1]);
+            }
+            System.arraycopy(ids[t], 0, all, t * IDS_PER_THREAD, IDS_PER_THREAD);
+        }
+        assertAllUnique(all);
+        for (long id : all) {
+            assertEquals(1, SnowflakeCodec.getMachineId(id));
+        }
+    }
+
+    @Test
+    public void batchIdsAreUniqueAndOrdered() throws Exception {
+        Snowflake snowflake = new Snowflake(2);
+        int threads = 4;
+        int batch = 10_000;
+        long[][] ids = new long[threads][];
+        runConcurrently(threads, index -> ids[index] = snowflake.nextIds(batch));
+
+        long[] all = new long[threads * batch];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 1; i < batch; i++) {
+                assertTrue(ids[t][i] > ids[t][i - 1]);
+            }
+            System.arraycopy(ids[t], 0, all, t * batch, batch);
+        }
+        assertAllUnique(all);
+    }
+
+    /**
+     * Reports ids/s at 1, 2, 4 and 8 threads. Generation is capped at 4096 ids per millisecond per machine id,
+     * so the point is that throughput holds up under contention rather than that it grows without bound.
+     * Wall-clock dependent, so it only runs with -Dbenchmark=true.
+     */
+    @Test
+    public void throughputScalesAcrossThreads() throws Exception {
+        Benchmarks.assumeEnabled();
+        double single = 0;
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            Snowflake snowflake = new Snowflake(3);
+            AtomicLong generated = new AtomicLong();
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(THROUGHPUT_MILLIS);
+            runConcurrently(threads, index -> {
+                long count = 0;
+                while (System.nanoTime() < deadline) {
+                    snowflake.nextId();
+                    count++;
+                }
+                generated.addAndGet(count);
+            });
+            double idsPerSecond = generated.get() * 1e9 / (System.nanoTime() - start);
+            System.out.printf("Snowflake %d thread(s): %,.0f ids/s, sequence exhausted %d times%n",
+                    threads, idsPerSecond, snowflake.getSequenceExhaustedCount());
+            if (threads == 1) {
+                single = idsPerSecond;
+            } else {
+                assertTrue("throughput collapsed at " + threads + " threads", idsPerSecond > single * 0.2);
+            }
+        }
+    }
+
+    private static void assertAllUnique(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            assertNotEquals("duplicate id", sorted[i - 1], sorted[i]);
+        }
+    }
+
+    private interface Worker {
+        void run(int index) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Worker worker) throws Exception {
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        Throwable[] errors = new Throwable[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    worker.run(index);
+                } catch (Throwable e) {
+                    errors[index] = e;
+                }
+            });
+            workers[t].start();
+        }
+        ready.await();
+        go.countDown();
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        for (Throwable error : errors) {
+            if (error != null) {
+                throw new AssertionError(error);
+            }
+        }
+    }
+}
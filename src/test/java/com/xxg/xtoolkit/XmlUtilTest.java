@@ -0,0 +1,177 @@
+package com.xxg.xtoolkit;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * XmlUtil 的 StAX 读取和字符串拼接写入与直接使用 Jackson XmlMapper 的结果对比，以及两者的耗时对比
+ */
+public class XmlUtilTest {
+
+    private static final XmlMapper XML_MAPPER = new XmlMapper();
+
+    private static final String PAYMENT_CALLBACK = "<xml>"
+            + "<appid><![CDATA[wx2421b1c4370ec43b]]></appid>"
+            + "<attach><![CDATA[支付测试]]></attach>"
+            + "<bank_type><![CDATA[CFT]]></bank_type>"
+            + "<fee_type><![CDATA[CNY]]></fee_type>"
+            + "<is_subscribe><![CDATA[Y]]></is_subscribe>"
+            + "<mch_id><![CDATA[10000100]]></mch_id>"
+            + "<nonce_str><![CDATA[5d2b6c2a8db53831f7eda20af46e531c]]></nonce_str>"
+            + "<openid><![CDATA[oUpF8uMEb4qRXf22hE3X68TekukE]]></openid>"
+            + "<out_trade_no><![CDATA[1409811653]]></out_trade_no>"
+            + "<result_code><![CDATA[SUCCESS]]></result_code>"
+            + "<return_code><![CDATA[SUCCESS]]></return_code>"
+            + "<sign><![CDATA[B552ED6B279343CB493C5DD0D78AB241]]></sign>"
+            + "<time_end><![CDATA[20140903131540]]></time_end>"
+            + "<total_fee>1</total_fee>"
+            + "<coupon_fee><![CDATA[10]]></coupon_fee>"
+            + "<coupon_count><![CDATA[1]]></coupon_count>"
+            + "<coupon_type><![CDATA[CASH]]></coupon_type>"
+            + "<coupon_id><![CDATA[10000]]></coupon_id>"
+            + "<trade_type><![CDATA[JSAPI]]></trade_type>"
+            + "<transaction_id><![CDATA[1004400740201409030005092168]]></transaction_id>"
+            + "</xml>";
+
+    private static final String[] XML_CASES = {
+            PAYMENT_CALLBACK,
+            "<person><name>jack</name><age>18</age></person>",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<xml>\n  <a>1</a>\n  <!-- 注释 -->\n  <b> x </b>\n</xml>",
+            "<xml><a>&amp;&lt;&gt;&quot;&#x4e2d;</a><b><![CDATA[<p>]]>tail</b></xml>",
+            "<xml><a></a><b/><c>  </c></xml>",
+            "<xml/>",
+            "<xml><a>1</a><a>2</a></xml>",
+            "<xml><a id=\"1\">v</a><b>w</b></xml>",
+            "<xml id=\"1\"><a>v</a></xml>",
+            "<xml><a><b>1</b><c>2</c></a><d>3</d></xml>",
+            "<xml>text<a>1</a></xml>",
+            "<!DOCTYPE xml><xml><a>1</a></xml>",
+            "<ns:xml xmlns:ns=\"urn:x\"><ns:a>1</ns:a></ns:xml>"
+    };
+
+    /**
+     * 格式错误，或者 Jackson 不支持（如 DTD 中声明的实体）
+     */
+    private static final String[] REJECTED_CASES = {
+            "<!DOCTYPE xml [<!ENTITY e \"entity\">]><xml><a>&e;</a></xml>",
+            "<xml><a>1</a>",
+            "<xml><a>1</b></xml>",
+            "not xml",
+            ""
+    };
+
+    @Test
+    public void xmlToMapMatchesJackson() throws IOException {
+        for (String xml : XML_CASES) {
+            Object expected = XML_MAPPER.readValue(xml, Map.class);
+            assertEquals(xml, expected, XmlUtil.xmlToMap(xml));
+            assertEquals(xml, expected, XmlUtil.xmlToMap(xml.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(xml, expected, XmlUtil.xmlToMap(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+        }
+    }
+
+    @Test
+    public void declaredEncodingIsHonoured() throws IOException {
+        Charset gbk = Charset.forName("GBK");
+        byte[] xml = "<?xml version=\"1.0\" encoding=\"GBK\"?><xml><attach>支付测试</attach></xml>".getBytes(gbk);
+        Map<String, String> map = XmlUtil.xmlToMap(xml);
+        assertEquals("支付测试", map.get("attach"));
+        assertEquals(XML_MAPPER.readValue(xml, Map.class), map);
+    }
+
+    @Test
+    public void rejectedXmlFailsLikeJackson() {
+        for (String xml : REJECTED_CASES) {
+            boolean jacksonFailed;
+            try {
+                XML_MAPPER.readValue(xml, Map.class);
+                jacksonFailed = false;
+            } catch (IOException e) {
+                jacksonFailed = true;
+            }
+            try {
+                XmlUtil.xmlToMap(xml);
+                assertFalse("expected failure: " + xml, jacksonFailed);
+            } catch (IOException e) {
+                assertTrue("unexpected failure: " + xml, jacksonFailed);
+            }
+        }
+    }
+
+    @Test
+    public void mapToXmlMatchesJackson() throws IOException {
+        for (Map<String, String> map : mapCases()) {
+            String expected = XML_MAPPER.writer().withRootName("xml").writeValueAsString(map);
+            assertEquals(expected, XmlUtil.mapToXml("xml", map));
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), XmlUtil.mapToXmlBytes("xml", map));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            XmlUtil.writeXml(out, "xml", map);
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        }
+    }
+
+    @Test
+    public void mapToXmlRoundTrips() throws IOException {
+        for (Map<String, String> map : mapCases()) {
+            if (map.containsValue(null) || map.isEmpty()) {
+                continue;
+            }
+            assertEquals(map, XmlUtil.xmlToMap(XmlUtil.mapToXml("xml", map)));
+        }
+    }
+
+    /**
+     * 对比支付回调 XML 的 StAX 读取、字符串拼接写入与 Jackson 数据绑定的耗时
+     */
+    @Test
+    public void benchmarkAgainstJackson() throws Exception {
+        Benchmarks.assumeEnabled();
+        byte[] bytes = PAYMENT_CALLBACK.getBytes(StandardCharsets.UTF_8);
+        Map<String, String> map = XmlUtil.xmlToMap(PAYMENT_CALLBACK);
+        String[] names = {"xmlToMap(String)", "xmlToMap(byte[])", "mapToXml"};
+        double[] nanos = Benchmarks.nanosPerOp(
+                () -> XmlUtil.xmlToMap(PAYMENT_CALLBACK), () -> XML_MAPPER.readValue(PAYMENT_CALLBACK, Map.class),
+                () -> XmlUtil.xmlToMap(bytes), () -> XML_MAPPER.readValue(bytes, Map.class),
+                () -> XmlUtil.mapToXml("xml", map), () -> XML_MAPPER.writer().withRootName("xml").writeValueAsString(map));
+        for (int i = 0; i < names.length; i++) {
+            System.out.printf("XmlUtil %-16s %d fields: XmlUtil %,.0f ns/op, Jackson %,.0f ns/op%n",
+                    names[i], map.size(), nanos[2 * i], nanos[2 * i + 1]);
+        }
+    }
+
+    private static Map<String, String>[] mapCases() {
+        Map<String, String> plain = new LinkedHashMap<>();
+        plain.put("name", "jack");
+        plain.put("age", "18");
+        plain.put("attach", "支付测试");
+
+        Map<String, String> escaped = new LinkedHashMap<>();
+        escaped.put("amp", "a&b");
+        escaped.put("lt", "a<b");
+        escaped.put("gt", "a>b");
+        escaped.put("cdataEnd", "x]]>y");
+        escaped.put("quote", "\"'");
+        escaped.put("whitespace", "a\tb\nc\r\nd");
+        escaped.put("empty", "");
+        escaped.put("del", "\u007f");
+        escaped.put("c1", "a\u0085b\u0080\u009f");
+
+        Map<String, String> withNull = new LinkedHashMap<>();
+        withNull.put("a", "1");
+        withNull.put("b", null);
+
+        @SuppressWarnings("unchecked")
+        Map<String, String>[] cases = new Map[]{plain, escaped, withNull, new LinkedHashMap<String, String>()};
+        return cases;
+    }
+}